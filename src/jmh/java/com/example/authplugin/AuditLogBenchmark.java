@@ -0,0 +1,60 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.slf4j.helpers.NOPLogger;
+
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件线程记录一条审计事件的开销，应在几十纳秒以内且不分配对象（-prof gc）。
+ * 写入线程跟不上时多出的事件会被丢弃，结果里的耗时不包含格式化和压缩。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuditLogBenchmark {
+    private Path directory;
+    private AuditLog auditLog;
+    private UUID uuid;
+    private InetAddress address;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("auth-audit-bench");
+        auditLog = new AuditLog(directory.toFile(), NOPLogger.NOP_LOGGER, true, 65536,
+            1000, 64L * 1024 * 1024, 2);
+        auditLog.open();
+        uuid = UUID.randomUUID();
+        address = InetAddress.getByName("203.0.113.7");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        auditLog.close();
+        System.out.println("written=" + auditLog.getWrittenCount() + " dropped=" + auditLog.getDroppedCount());
+        Fakes.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void record() {
+        auditLog.record(AuditLog.Event.LOGIN_FAILURE, uuid, "Steve", address, "wrong-password");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        auditLog.record(AuditLog.Event.LOGIN_FAILURE, uuid, "Steve", address, "wrong-password");
+    }
+}
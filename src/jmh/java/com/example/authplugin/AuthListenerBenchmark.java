@@ -0,0 +1,88 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.event.command.CommandExecuteEvent;
+import com.velocitypowered.api.event.player.PlayerChatEvent;
+import com.velocitypowered.api.proxy.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个命令和聊天事件都会经过的处理器。已登录玩家是最常见的情况，应当不分配对象；
+ * 配合 -prof gc 运行可以看到每次调用的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AuthListenerBenchmark {
+    private Path dataDirectory;
+    private AuthPlugin plugin;
+    private AuthListener listener;
+    private CommandExecuteEvent authenticatedCommand;
+    private CommandExecuteEvent allowedCommand;
+    private CommandExecuteEvent blockedCommand;
+    private PlayerChatEvent authenticatedChat;
+    private PlayerChatEvent blockedChat;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDirectory = Files.createTempDirectory("auth-bench");
+        plugin = Fakes.plugin(dataDirectory);
+        listener = new AuthListener(plugin);
+
+        Player authenticated = Fakes.player("Authenticated", false);
+        plugin.getAuthManager().authenticatePlayer(authenticated.getUniqueId());
+        Player guest = Fakes.player("Guest", false);
+
+        authenticatedCommand = new CommandExecuteEvent(authenticated, "spawn");
+        allowedCommand = new CommandExecuteEvent(guest, "LOGIN secret");
+        blockedCommand = new CommandExecuteEvent(guest, "spawn");
+        authenticatedChat = new PlayerChatEvent(authenticated, "hello");
+        blockedChat = new PlayerChatEvent(guest, "hello");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        plugin.getAuthManager().shutdown();
+        Fakes.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public CommandExecuteEvent commandAuthenticated() {
+        listener.onCommand(authenticatedCommand);
+        return authenticatedCommand;
+    }
+
+    @Benchmark
+    public CommandExecuteEvent commandWhitelisted() {
+        listener.onCommand(allowedCommand);
+        return allowedCommand;
+    }
+
+    @Benchmark
+    public CommandExecuteEvent commandBlocked() {
+        listener.onCommand(blockedCommand);
+        return blockedCommand;
+    }
+
+    @Benchmark
+    public PlayerChatEvent chatAuthenticated() {
+        listener.onPlayerChat(authenticatedChat);
+        return authenticatedChat;
+    }
+
+    @Benchmark
+    public PlayerChatEvent chatBlocked() {
+        listener.onPlayerChat(blockedChat);
+        return blockedChat;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AuthManager 的入口方法。authenticate 走完整的异步流程（工作线程、哈希线程池、限流），
+ * 哈希迭代次数在基准配置中调低，结果主要反映插件自身的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuthManagerBenchmark {
+    private static final String PASSWORD = "Benchmark123";
+
+    private Path dataDirectory;
+    private AuthManager authManager;
+    private Player whitelisted;
+    private Player stranger;
+    private Player registered;
+
+    @Setup
+    public void setUp() throws Exception {
+        dataDirectory = Files.createTempDirectory("auth-bench");
+        authManager = Fakes.plugin(dataDirectory).getAuthManager();
+        whitelisted = Fakes.player("BenchPlayer", false);
+        stranger = Fakes.player("Stranger", false);
+        registered = Fakes.player("Registered", false);
+        authManager.loadPlayer(registered).join();
+        authManager.register(registered, PASSWORD).join();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        authManager.shutdown();
+        Fakes.deleteRecursively(dataDirectory);
+    }
+
+    @Benchmark
+    public boolean canPlayerJoinWhitelisted() {
+        return authManager.canPlayerJoin(whitelisted);
+    }
+
+    @Benchmark
+    public boolean canPlayerJoinRejected() {
+        return authManager.canPlayerJoin(stranger);
+    }
+
+    @Benchmark
+    public boolean isPasswordStrong() {
+        return authManager.isPasswordStrong(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean authenticateSuccess() {
+        return authManager.authenticate(registered, PASSWORD).join();
+    }
+
+    @Benchmark
+    public boolean authenticateWrongPassword() {
+        return authManager.authenticate(registered, "Wrong123456").join();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CredentialIndex 与 ConcurrentHashMap&lt;UUID, Credential&gt; 的查询耗时对比。
+ * 内存占用用 main 方法测量（./gradlew jmhFootprint），JMH 本身不统计常驻内存。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CredentialIndexBenchmark {
+    // 与真实数据相近的哈希长度
+    private static final String HASH =
+        "$pbkdf2-sha256$310000$c2FsdHNhbHRzYWx0c2FsdA$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g";
+
+    @Param({"10000", "1000000"})
+    public int accounts;
+
+    private CredentialIndex index;
+    private Map<UUID, Credential> map;
+    private UUID[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = offlineUuid("player" + i);
+        }
+        index = fillIndex(ids);
+        map = fillMap(ids);
+    }
+
+    @Benchmark
+    public Credential indexLookup() {
+        return index.get(nextId());
+    }
+
+    @Benchmark
+    public Credential mapLookup() {
+        return map.get(nextId());
+    }
+
+    @Benchmark
+    public boolean indexContains() {
+        return index.contains(nextId());
+    }
+
+    private UUID nextId() {
+        UUID id = ids[next];
+        next = next + 1 == ids.length ? 0 : next + 1;
+        return id;
+    }
+
+    static UUID offlineUuid(String name) {
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static CredentialIndex fillIndex(UUID[] ids) {
+        CredentialIndex index = new CredentialIndex(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(new Credential(ids[i], "player" + i, HASH));
+        }
+        return index;
+    }
+
+    static Map<UUID, Credential> fillMap(UUID[] ids) {
+        Map<UUID, Credential> map = new ConcurrentHashMap<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            // 与从文件加载时一样，每条记录都有自己的 UUID 和 String
+            UUID id = new UUID(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits());
+            map.put(id, new Credential(id, "player" + i, new String(HASH.toCharArray())));
+        }
+        return map;
+    }
+
+    /**
+     * 分别测量两种结构保存 N 个账户后的常驻堆内存。用法：main [账户数]
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        UUID[] ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = offlineUuid("player" + i);
+        }
+
+        long baseline = usedHeap();
+        CredentialIndex index = fillIndex(ids);
+        long indexBytes = usedHeap() - baseline;
+        System.out.println(String.format("CredentialIndex: %d 个账户 %.1f MB，每个 %d 字节",
+            index.size(), indexBytes / 1048576.0, indexBytes / accounts));
+        index = null;
+
+        baseline = usedHeap();
+        Map<UUID, Credential> map = fillMap(ids);
+        long mapBytes = usedHeap() - baseline;
+        System.out.println(String.format("ConcurrentHashMap: %d 个账户 %.1f MB，每个 %d 字节",
+            map.size(), mapBytes / 1048576.0, mapBytes / accounts));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
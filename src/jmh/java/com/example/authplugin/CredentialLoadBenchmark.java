@@ -0,0 +1,116 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时加载账户文件的耗时，对应 AuthManager.loadPasswords 中的文件存储。
+ * load 测全部加载完成的时间，firstLookup 测 open 之后第一个已注册账户可以查询的时间，
+ * migrate 测从旧版 passwords.txt 转换为 passwords.dat 的时间。
+ * 分配量可以在 build.gradle 的 jmh 块中加上 profilers = ['gc'] 查看。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CredentialLoadBenchmark {
+    @Param({"10000", "100000", "1000000"})
+    public int accounts;
+
+    private Path directory;
+    private File snapshotFile;
+    private File legacyFile;
+    private File logFile;
+    private UUID first;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("auth-bench");
+        snapshotFile = directory.resolve("passwords.dat").toFile();
+        legacyFile = directory.resolve("passwords.txt").toFile();
+        logFile = directory.resolve("passwords.log").toFile();
+        // 与真实数据相近的哈希长度
+        String hash = "$pbkdf2-sha256$310000$c2FsdHNhbHRzYWx0c2FsdA$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g";
+        try (BufferedWriter writer = Files.newBufferedWriter(legacyFile.toPath(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < accounts; i++) {
+                String name = "player" + i;
+                UUID uuid = UUID.nameUUIDFromBytes(("OfflinePlayer:" + name).getBytes(StandardCharsets.UTF_8));
+                if (i == 0) {
+                    first = uuid;
+                }
+                writer.write(uuid + ":" + name + ":" + hash);
+                writer.newLine();
+            }
+        }
+        // 先转换一次，load 和 firstLookup 读取二进制快照
+        CredentialLog log = newLog();
+        log.open();
+        log.whenLoaded().join();
+        log.close();
+        Files.copy(directory.resolve("passwords.txt.migrated"), legacyFile.toPath());
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Fakes.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int load() throws Exception {
+        CredentialLog log = newLog();
+        log.open();
+        log.whenLoaded().join();
+        int size = log.size();
+        log.close();
+        return size;
+    }
+
+    @Benchmark
+    public Credential firstLookup() throws Exception {
+        CredentialLog log = newLog();
+        log.open();
+        Credential credential = log.lookup(first).join();
+        log.close();
+        return credential;
+    }
+
+    @Benchmark
+    public int migrate() throws Exception {
+        File binary = directory.resolve("migrate.dat").toFile();
+        Files.deleteIfExists(binary.toPath());
+        File legacy = directory.resolve("migrate.txt").toFile();
+        Files.copy(legacyFile.toPath(), legacy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        CredentialLog log = new CredentialLog(binary, legacy, logFile, NOPLogger.NOP_LOGGER, 256, Integer.MAX_VALUE);
+        log.open();
+        log.whenLoaded().join();
+        int size = log.size();
+        log.close();
+        return size;
+    }
+
+    private CredentialLog newLog() {
+        return new CredentialLog(snapshotFile, legacyFile, logFile, NOPLogger.NOP_LOGGER, 256, Integer.MAX_VALUE);
+    }
+}
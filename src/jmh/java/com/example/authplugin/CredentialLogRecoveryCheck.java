@@ -0,0 +1,105 @@
+package com.example.authplugin;
+
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * 模拟写最后一条记录时崩溃：把凭据日志截断到最后一条记录的每一个字节位置后重新打开，
+ * 检查之前的记录都在、写了一半的记录被丢弃、日志尾部被截掉，并且之后追加的记录在下次重放时仍然有效。
+ * 用法：./gradlew jmhChecks，检查失败时抛出 AssertionError。
+ */
+public final class CredentialLogRecoveryCheck {
+    private static final String HASH = "$pbkdf2-sha256$1000$c2FsdA$aGFzaA";
+
+    private CredentialLogRecoveryCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path root = Files.createTempDirectory("auth-recovery");
+        try {
+            run(root);
+        } finally {
+            Fakes.deleteRecursively(root);
+        }
+    }
+
+    private static void run(Path root) throws Exception {
+        Credential first = credential("Alice", HASH);
+        Credential second = credential("Bob", HASH);
+        Credential changed = first.withPassword(HASH + "2");
+        Credential last = credential("Carol", HASH);
+        Credential later = credential("Dave", HASH);
+
+        // 写线程只在关闭时压缩，这里读取日志时不关闭，日志中保留全部记录
+        Path source = Files.createDirectories(root.resolve("source"));
+        CredentialLog log = open(source);
+        log.put(first).join();
+        log.put(second).join();
+        log.put(changed).join();
+        long prefix = logFile(source).length();
+        log.put(last).join();
+        byte[] bytes = Files.readAllBytes(logFile(source).toPath());
+        check(bytes.length > prefix, "最后一条记录没有写入日志");
+
+        for (int cut = (int) prefix; cut <= bytes.length; cut++) {
+            boolean complete = cut == bytes.length;
+            Path directory = Files.createDirectories(root.resolve("cut-" + cut));
+            Files.write(logFile(directory).toPath(), Arrays.copyOf(bytes, cut));
+
+            CredentialLog recovered = open(directory);
+            expect(recovered, first.getUniqueId(), changed.getPassword(), cut);
+            expect(recovered, second.getUniqueId(), second.getPassword(), cut);
+            expect(recovered, last.getUniqueId(), complete ? last.getPassword() : null, cut);
+            check(logFile(directory).length() == (complete ? bytes.length : prefix),
+                "截断位置 " + cut + " 重放后日志长度为 " + logFile(directory).length());
+
+            // 截掉残缺的尾部后继续追加，复制一份日志重新打开，新记录必须还在
+            recovered.put(later).join();
+            Path copy = Files.createDirectories(root.resolve("copy-" + cut));
+            Files.copy(logFile(directory).toPath(), logFile(copy).toPath());
+            CredentialLog reopened = open(copy);
+            expect(reopened, first.getUniqueId(), changed.getPassword(), cut);
+            expect(reopened, last.getUniqueId(), complete ? last.getPassword() : null, cut);
+            expect(reopened, later.getUniqueId(), later.getPassword(), cut);
+            reopened.close();
+            recovered.close();
+        }
+        log.close();
+        System.out.println("凭据日志崩溃恢复检查通过：最后一条记录 " + (bytes.length - prefix) + " 字节，逐字节截断");
+    }
+
+    private static CredentialLog open(Path directory) throws Exception {
+        CredentialLog log = new CredentialLog(directory.resolve("passwords.dat").toFile(),
+            directory.resolve("passwords.txt").toFile(), logFile(directory), NOPLogger.NOP_LOGGER, 16,
+            Integer.MAX_VALUE);
+        log.open();
+        log.whenLoaded().join();
+        return log;
+    }
+
+    private static File logFile(Path directory) {
+        return directory.resolve("passwords.log").toFile();
+    }
+
+    private static Credential credential(String name, String password) {
+        return new Credential(CredentialIndexBenchmark.offlineUuid(name), name, password);
+    }
+
+    private static void expect(CredentialLog log, UUID uuid, String password, int cut) {
+        Credential credential = log.get(uuid);
+        String actual = credential == null ? null : credential.getPassword();
+        check(password == null ? actual == null : password.equals(actual),
+            "截断位置 " + cut + " 账户 " + uuid + " 的密码为 " + actual + "，应为 " + password);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已有 accounts 个账户时连续注册 registrations 个新账户的总耗时。
+ * logConcurrent 同时提交全部注册，由写线程合并成批再 fsync；logSequential 每次等上一条落盘，
+ * 相当于玩家一个接一个注册；fullRewrite 是改成追加日志之前的做法，每次注册都重写整个 passwords.txt。
+ * 旧代码重写后没有 fsync，这里补上 fsync，三者的持久性相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class CredentialLogWriteBenchmark {
+    private static final String HASH =
+        "$pbkdf2-sha256$310000$c2FsdHNhbHRzYWx0c2FsdA$aGFzaGhhc2hoYXNoaGFzaGhhc2hoYXNoaGFzaGhhc2g";
+
+    @Param({"10000", "100000"})
+    public int accounts;
+
+    @Param({"100"})
+    public int registrations;
+
+    private Path directory;
+    private File template;
+    private UUID[] ids;
+    private Credential[] added;
+
+    private CredentialLog log;
+    private Map<UUID, Credential> passwords;
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("auth-bench");
+        template = directory.resolve("template.dat").toFile();
+        ids = new UUID[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = CredentialIndexBenchmark.offlineUuid("player" + i);
+        }
+        CredentialSnapshot.write(template, CredentialIndexBenchmark.fillIndex(ids));
+        added = new Credential[registrations];
+        for (int i = 0; i < registrations; i++) {
+            String name = "newcomer" + i;
+            added[i] = new Credential(CredentialIndexBenchmark.offlineUuid(name), name, HASH);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void prepare() throws Exception {
+        Files.copy(template.toPath(), directory.resolve("passwords.dat"), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(directory.resolve("passwords.log"));
+        log = new CredentialLog(directory.resolve("passwords.dat").toFile(),
+            directory.resolve("passwords.txt").toFile(), directory.resolve("passwords.log").toFile(),
+            NOPLogger.NOP_LOGGER, 256, Integer.MAX_VALUE);
+        log.open();
+        log.whenLoaded().join();
+        passwords = CredentialIndexBenchmark.fillMap(ids);
+    }
+
+    @TearDown(Level.Iteration)
+    public void finish() {
+        log.close();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Fakes.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int logConcurrent() {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[registrations];
+        for (int i = 0; i < registrations; i++) {
+            futures[i] = log.insert(added[i]);
+        }
+        CompletableFuture.allOf(futures).join();
+        return log.size();
+    }
+
+    @Benchmark
+    public int logSequential() {
+        for (Credential credential : added) {
+            log.insert(credential).join();
+        }
+        return log.size();
+    }
+
+    @Benchmark
+    public int fullRewrite() throws IOException {
+        File file = directory.resolve("rewrite.txt").toFile();
+        for (Credential credential : added) {
+            passwords.put(credential.getUniqueId(), credential);
+            rewrite(file);
+        }
+        return passwords.size();
+    }
+
+    // 与旧版 savePasswords 相同：每行 UUID:玩家名:密码
+    private void rewrite(File file) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (Credential credential : passwords.values()) {
+                writer.write(credential.getUniqueId() + ":" + credential.getUsername() + ":"
+                    + credential.getPassword());
+                writer.newLine();
+            }
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+}
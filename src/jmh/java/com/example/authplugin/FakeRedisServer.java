@@ -0,0 +1,238 @@
+package com.example.authplugin;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 进程内的 Redis 替身，只实现 RedisSessionStore 用到的 AUTH、SELECT、GET、SET [PX] 和 DEL，
+ * 按 PX 过期。可以让下一条命令返回错误，并记录收到的全部命令，不需要真实的 Redis 就能驱动会话存储。
+ */
+final class FakeRedisServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final String password;
+    private final Map<String, Entry> values = new ConcurrentHashMap<>();
+    private final List<List<String>> commands = new CopyOnWriteArrayList<>();
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private volatile String nextError;
+    private volatile String nextRaw;
+
+    FakeRedisServer(String password) throws IOException {
+        this.password = password;
+        this.serverSocket = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "fake-redis-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    // 下一条命令（AUTH 除外）返回 -message
+    void failNext(String message) {
+        nextError = message;
+    }
+
+    // 下一条命令（AUTH 除外）原样返回 line，用来模拟格式错误或被截断的响应
+    void replyNextRaw(String line) {
+        nextRaw = line;
+    }
+
+    boolean contains(String key) {
+        return value(key) != null;
+    }
+
+    long ttlMillis(String key) {
+        Entry entry = values.get(key);
+        return entry == null || entry.expiresAt == Long.MAX_VALUE ? -1 : entry.expiresAt - System.currentTimeMillis();
+    }
+
+    List<List<String>> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    int getConnectionCount() {
+        return clients.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                clients.add(client);
+                Thread handler = new Thread(() -> serve(client), "fake-redis-client");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket client) {
+        try (Socket socket = client) {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            boolean authenticated = password == null;
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                commands.add(command);
+                String name = command.get(0).toUpperCase(Locale.ROOT);
+                String error = nextError;
+                String raw = nextRaw;
+                if (name.equals("AUTH")) {
+                    authenticated = command.size() == 2 && command.get(1).equals(password);
+                    reply(out, authenticated ? "+OK" : "-WRONGPASS invalid password");
+                } else if (!authenticated) {
+                    reply(out, "-NOAUTH Authentication required.");
+                } else if (raw != null) {
+                    nextRaw = null;
+                    reply(out, raw);
+                } else if (error != null) {
+                    nextError = null;
+                    reply(out, "-" + error);
+                } else {
+                    execute(name, command, out);
+                }
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // 客户端断开
+        }
+    }
+
+    private void execute(String name, List<String> command, OutputStream out) throws IOException {
+        switch (name) {
+            case "SELECT":
+                reply(out, "+OK");
+                break;
+            case "GET": {
+                String value = value(command.get(1));
+                if (value == null) {
+                    reply(out, "$-1");
+                } else {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    reply(out, "$" + bytes.length);
+                    out.write(bytes);
+                    reply(out, "");
+                }
+                break;
+            }
+            case "SET": {
+                long expiresAt = Long.MAX_VALUE;
+                if (command.size() == 5 && command.get(3).equalsIgnoreCase("PX")) {
+                    expiresAt = System.currentTimeMillis() + Long.parseLong(command.get(4));
+                } else if (command.size() != 3) {
+                    reply(out, "-ERR syntax error");
+                    break;
+                }
+                values.put(command.get(1), new Entry(command.get(2), expiresAt));
+                reply(out, "+OK");
+                break;
+            }
+            case "DEL":
+                reply(out, ":" + (values.remove(command.get(1)) == null ? 0 : 1));
+                break;
+            default:
+                reply(out, "-ERR unknown command '" + command.get(0) + "'");
+        }
+    }
+
+    private String value(String key) {
+        Entry entry = values.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expiresAt) {
+            values.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    // 读取一条 RESP 数组形式的命令，连接关闭时返回 null
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("只支持数组形式的命令");
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<String> args = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("命令参数必须是批量字符串");
+            }
+            byte[] bytes = new byte[Integer.parseInt(readLine(in))];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new EOFException();
+                }
+                offset += read;
+            }
+            readLine(in);
+            args.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return args;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(16);
+        int b;
+        while ((b = in.read()) != '\r') {
+            if (b < 0) {
+                throw new EOFException();
+            }
+            line.write(b);
+        }
+        in.read();
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write(line.getBytes(StandardCharsets.UTF_8));
+        out.write('\r');
+        out.write('\n');
+    }
+
+    private static final class Entry {
+        private final String value;
+        private final long expiresAt;
+
+        private Entry(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+/**
+ * 基准测试用的轻量假对象。用动态代理实现 Velocity 接口，未指定的方法返回空值，
+ * 返回接口类型时再返回一个同样的假对象，足够让插件在没有真实代理的情况下运行。
+ */
+final class Fakes {
+    // 基准测试使用的配置：降低哈希成本、放开限流、关闭监控端口和会话恢复，
+    // 正版查询指向本机不可用的端口，不向 Mojang 发请求，只测插件自身的开销
+    private static final String CONFIG = String.join("\n",
+        "allowed-offline-players:",
+        "  - BenchPlayer",
+        "hashing:",
+        "  algorithm: pbkdf2",
+        "  pbkdf2:",
+        "    iterations: 1000",
+        "rate-limit:",
+        "  per-account: 2000000000",
+        "  per-ip: 2000000000",
+        "  per-subnet: 2000000000",
+        "session:",
+        "  ttl: 0",
+        "metrics:",
+        "  port: 0",
+        "mojang:",
+        "  api-url: \"http://127.0.0.1:9\"",
+        "");
+
+    private Fakes() {
+    }
+
+    static <T> T fake(Class<T> type, Map<String, Object> answers) {
+        Object proxy = Proxy.newProxyInstance(Fakes.class.getClassLoader(), new Class<?>[] {type},
+            (self, method, args) -> {
+                switch (method.getName()) {
+                    case "equals":
+                        return self == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(self);
+                    case "toString":
+                        return "Fake" + type.getSimpleName();
+                    default:
+                        break;
+                }
+                if (answers.containsKey(method.getName())) {
+                    return answers.get(method.getName());
+                }
+                return defaultValue(method);
+            });
+        return type.cast(proxy);
+    }
+
+    static Player player(String username, boolean onlineMode) {
+        Map<String, Object> answers = new HashMap<>();
+        answers.put("getUsername", username);
+        answers.put("getUniqueId",
+            UUID.nameUUIDFromBytes(("OfflinePlayer:" + username).getBytes(StandardCharsets.UTF_8)));
+        answers.put("isOnlineMode", onlineMode);
+        answers.put("getRemoteAddress", new InetSocketAddress(InetAddress.getLoopbackAddress(), 25565));
+        answers.put("isActive", true);
+        answers.put("hasPermission", true);
+        return fake(Player.class, answers);
+    }
+
+    static ProxyServer proxyServer() {
+        return fake(ProxyServer.class, Collections.emptyMap());
+    }
+
+    /**
+     * 在临时目录中写入基准测试配置并创建插件实例。
+     */
+    static AuthPlugin plugin(Path dataDirectory) throws IOException {
+        Files.createDirectories(dataDirectory);
+        Files.write(dataDirectory.resolve("config.yml"), CONFIG.getBytes(StandardCharsets.UTF_8));
+        return new AuthPlugin(proxyServer(), NOPLogger.NOP_LOGGER, dataDirectory);
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == void.class) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == int.class || type == short.class || type == byte.class || type == char.class) {
+            return 0;
+        }
+        if (type == double.class || type == float.class) {
+            return 0.0;
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        if (type == CompletableFuture.class) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (type == String.class) {
+            return "";
+        }
+        if (type == Set.class) {
+            return Collections.emptySet();
+        }
+        if (type == List.class || type == Collection.class) {
+            return Collections.emptyList();
+        }
+        if (type == Map.class) {
+            return Collections.emptyMap();
+        }
+        if (type.isInterface()) {
+            return fake(type, Collections.emptyMap());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.Player;
+import net.elytrium.limboapi.api.Limbo;
+import net.elytrium.limboapi.api.LimboFactory;
+import net.elytrium.limboapi.api.LimboSessionHandler;
+import net.elytrium.limboapi.api.player.LimboPlayer;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * 登录等待区的浸泡检查：多轮让大量未登录玩家进入 AuthLimbo，其中一部分注册后离开等待区，其余断线，
+ * 检查计数和会话在每轮结束后归零、多轮之间没有内存泄漏，并估算每个等待中的玩家占用的插件内存。
+ * LimboAPI 用动态代理代替，spawnPlayer 直接回调 onSpawn，所以只测插件自身的状态（会话、登录期限、
+ * 处理器），不包括 LimboAPI 为每个连接保存的数据。
+ * 用法：./gradlew jmhChecks，或直接运行 main 并传入每轮人数和轮数，检查失败时抛出 AssertionError。
+ */
+public final class LimboSoakCheck {
+    private static final String PASSWORD = "Benchmark123";
+    // 估算同时等待人数时假设可用的堆内存
+    private static final long HEAP_BUDGET = 512L * 1024 * 1024;
+
+    private LimboSoakCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int players = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int registrations = Math.min(200, players);
+        Path dataDirectory = Files.createTempDirectory("auth-limbo-soak");
+        ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "limbo-soak-network");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AuthPlugin plugin = Fakes.plugin(dataDirectory);
+        AuthManager authManager = plugin.getAuthManager();
+        try {
+            FakeLimboApi limboApi = new FakeLimboApi(network);
+            AuthLimbo limbo = new AuthLimbo(plugin, limboApi.factory);
+            limbo.onProxyInitialize(null);
+            check(limbo.isActive(), "登录等待区没有创建");
+
+            long timers = gauge(authManager, "auth_timer_pending");
+            long baseline = usedMemory();
+            long perPlayer = 0;
+            for (int round = 0; round < rounds; round++) {
+                List<Player> joined = new ArrayList<>(players);
+                for (int i = 0; i < players; i++) {
+                    joined.add(Fakes.player("Soak" + round + "_" + i, false));
+                }
+                long beforeHold = usedMemory();
+                for (Player player : joined) {
+                    limbo.hold(player);
+                }
+                await(limbo::getHeldCount, players, "进入等待区的玩家");
+                check(limboApi.spawned.get() == players * (round + 1), "spawnPlayer 调用了 "
+                    + limboApi.spawned.get() + " 次");
+                perPlayer = Math.max(perPlayer, (usedMemory() - beforeHold) / players);
+                check(gauge(authManager, "auth_limbo_players") == players, "auth_limbo_players 与等待人数不一致");
+
+                // 未登录时的聊天和其他命令被拦截，不离开等待区
+                long chatBlocked = authManager.getMetrics().getChatBlocked().sum();
+                long commandsBlocked = authManager.getMetrics().getCommandsBlocked().sum();
+                limboApi.handler(joined.get(0)).onChat("hello");
+                limboApi.handler(joined.get(0)).onChat("/spawn");
+                check(authManager.getMetrics().getChatBlocked().sum() == chatBlocked + 1, "未登录的聊天没有被拦截");
+                check(authManager.getMetrics().getCommandsBlocked().sum() == commandsBlocked + 1,
+                    "未登录的命令没有被拦截");
+
+                // 注册成功的玩家离开等待区，会话保留给之后的登录流程
+                int released = limboApi.released.get();
+                for (int i = 0; i < registrations; i++) {
+                    limboApi.handler(joined.get(i)).onChat("/register " + PASSWORD);
+                }
+                await(limboApi.released::get, released + registrations, "注册后离开等待区的玩家");
+                await(limbo::getHeldCount, players - registrations, "仍在等待区的玩家");
+                for (int i = 0; i < registrations; i++) {
+                    check(authManager.isAuthenticated(joined.get(i)), "注册后的玩家没有登录");
+                }
+                check(limboApi.passed.get() == 0, "没有恢复会话的玩家不应该跳过等待区");
+
+                // 其余玩家断线，已登录的玩家之后从后端断开
+                for (int i = registrations; i < players; i++) {
+                    limboApi.handler(joined.get(i)).onDisconnect();
+                }
+                for (int i = 0; i < registrations; i++) {
+                    authManager.removePlayer(joined.get(i));
+                }
+                check(limbo.getHeldCount() == 0, "断线后等待区仍有 " + limbo.getHeldCount() + " 名玩家");
+                check(gauge(authManager, "auth_sessions") == 0, "断线后仍有 "
+                    + gauge(authManager, "auth_sessions") + " 个会话");
+                limboApi.handlers.clear();
+                joined.clear();
+            }
+            await(() -> (int) gauge(authManager, "auth_timer_pending"), (int) timers, "断线后仍在排队的定时任务");
+
+            // 每轮注册的账户留在存储中，其余状态应全部释放
+            long retained = usedMemory() - baseline;
+            long limit = Math.max(4L * 1024 * 1024, (long) registrations * rounds * 2048);
+            check(retained < limit, rounds + " 轮后仍多占用 " + retained / 1024 + " KiB，上限为 " + limit / 1024 + " KiB");
+            System.out.println("登录等待区浸泡检查通过：" + rounds + " 轮，每轮 " + players + " 名玩家");
+            System.out.println("每名等待中的玩家约占用插件内存 " + perPlayer + " 字节，"
+                + HEAP_BUDGET / 1024 / 1024 + " MiB 堆可容纳约 " + HEAP_BUDGET / Math.max(1, perPlayer)
+                + " 名同时等待的玩家（不含 LimboAPI 自身的连接状态）");
+        } finally {
+            authManager.shutdown();
+            network.shutdownNow();
+            Fakes.deleteRecursively(dataDirectory);
+        }
+    }
+
+    private static void await(IntSupplier value, int expected, String what) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+        while (value.getAsInt() != expected) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError(what + "为 " + value.getAsInt() + "，应为 " + expected);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    // 从 Prometheus 文本中读取不带标签的指标
+    private static long gauge(AuthManager authManager, String name) {
+        for (String line : authManager.getMetrics().toPrometheus().split("\n")) {
+            if (line.startsWith(name + " ")) {
+                return (long) Double.parseDouble(line.substring(name.length() + 1).trim());
+            }
+        }
+        throw new AssertionError("没有找到指标 " + name);
+    }
+
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(50);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    /**
+     * 只实现 AuthLimbo 用到的部分：spawnPlayer 立即回调 onSpawn，LimboPlayer.disconnect 回调 onDisconnect，
+     * 与 LimboAPI 一样在玩家的网络线程上执行。
+     */
+    private static final class FakeLimboApi {
+        private final Map<Player, LimboSessionHandler> handlers = Collections.synchronizedMap(new HashMap<>());
+        private final AtomicInteger spawned = new AtomicInteger();
+        private final AtomicInteger released = new AtomicInteger();
+        private final AtomicInteger passed = new AtomicInteger();
+        private final LimboFactory factory;
+        private final Limbo limbo;
+
+        private FakeLimboApi(ScheduledExecutorService network) {
+            this.limbo = (Limbo) Proxy.newProxyInstance(Limbo.class.getClassLoader(), new Class<?>[] {Limbo.class},
+                (self, method, args) -> {
+                    if (method.getName().equals("spawnPlayer")) {
+                        Player player = (Player) args[0];
+                        LimboSessionHandler handler = (LimboSessionHandler) args[1];
+                        handlers.put(player, handler);
+                        spawned.incrementAndGet();
+                        LimboPlayer limboPlayer = limboPlayer(player, handler, network);
+                        network.execute(() -> handler.onSpawn(limbo(), limboPlayer));
+                        return null;
+                    }
+                    return method.getReturnType() == Limbo.class ? self : null;
+                });
+            Map<String, Object> answers = new HashMap<>();
+            answers.put("createLimbo", limbo);
+            this.factory = (LimboFactory) Proxy.newProxyInstance(LimboFactory.class.getClassLoader(),
+                new Class<?>[] {LimboFactory.class}, (self, method, args) -> {
+                    if (method.getName().equals("passLoginLimbo")) {
+                        passed.incrementAndGet();
+                        return null;
+                    }
+                    if (answers.containsKey(method.getName())) {
+                        return answers.get(method.getName());
+                    }
+                    return method.getReturnType().isInterface()
+                        ? Fakes.fake(method.getReturnType(), Collections.emptyMap()) : null;
+                });
+        }
+
+        private Limbo limbo() {
+            return limbo;
+        }
+
+        private LimboSessionHandler handler(Player player) {
+            return handlers.get(player);
+        }
+
+        private LimboPlayer limboPlayer(Player player, LimboSessionHandler handler,
+                                        ScheduledExecutorService scheduler) {
+            AtomicInteger disconnected = new AtomicInteger();
+            return (LimboPlayer) Proxy.newProxyInstance(LimboPlayer.class.getClassLoader(),
+                new Class<?>[] {LimboPlayer.class}, (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "getProxyPlayer":
+                            return player;
+                        case "getScheduledExecutor":
+                            return scheduler;
+                        case "disconnect":
+                            // 离开等待区，LimboAPI 随后回调 onDisconnect 并继续登录流程
+                            if (disconnected.getAndIncrement() == 0) {
+                                released.incrementAndGet();
+                                handler.onDisconnect();
+                            }
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+}
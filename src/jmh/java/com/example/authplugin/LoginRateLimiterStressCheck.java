@@ -0,0 +1,168 @@
+package com.example.authplugin;
+
+import java.net.InetAddress;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多线程同时占用和退还登录机会，检查限流计数没有丢失更新：
+ * 同一账户并发尝试时放行的次数恰好等于上限；占用后立即 onSuccess 退还，结束时计数回到零；
+ * 因网段超限被拒绝的尝试退还了账户和 IP 的计数；密码没有校验就失败的尝试用 release 退还全部三个维度。时间固定不变，结果与窗口滑动无关。
+ * 用法：./gradlew jmhChecks，检查失败时抛出 AssertionError。
+ */
+public final class LoginRateLimiterStressCheck {
+    private static final int THREADS = 8;
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+    private static final long WINDOW = 300000;
+    // 窗口起点，上一窗口的计数不参与估算
+    private static final long NOW = WINDOW * 1000;
+
+    private LoginRateLimiterStressCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        exactAccountLimit();
+        successReleases();
+        rejectedAttemptsRelease();
+        uncheckedAttemptsRelease();
+        System.out.println("登录限流并发检查通过：" + THREADS + " 个线程");
+    }
+
+    // 所有线程抢同一个账户，放行次数必须恰好等于上限
+    private static void exactAccountLimit() throws Exception {
+        int limit = 1000;
+        LoginRateLimiter limiter = new LoginRateLimiter(new LoginRateLimiter.Settings(WINDOW, limit, UNLIMITED,
+            UNLIMITED, 65536));
+        AtomicInteger allowed = new AtomicInteger();
+        runConcurrently(thread -> {
+            InetAddress address = address(10, thread, 0, 1);
+            for (int i = 0; i < limit; i++) {
+                if (limiter.tryAcquire("Victim", address, NOW) == null) {
+                    allowed.incrementAndGet();
+                }
+            }
+        });
+        check(allowed.get() == limit, "同一账户放行了 " + allowed.get() + " 次，上限为 " + limit);
+    }
+
+    // 每次放行后立即登录成功，IP 计数全部退还，之后还能重新用满上限
+    private static void successReleases() throws Exception {
+        int limit = 100;
+        LoginRateLimiter limiter = new LoginRateLimiter(new LoginRateLimiter.Settings(WINDOW, UNLIMITED, limit,
+            UNLIMITED, 65536));
+        InetAddress shared = address(192, 0, 2, 7);
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(thread -> {
+            String username = "Player" + thread;
+            for (int i = 0; i < 100000; i++) {
+                if (limiter.tryAcquire(username, shared, NOW) == null) {
+                    limiter.onSuccess(username, shared, NOW);
+                } else {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+        // 同时占用的机会不超过线程数，不应该有尝试被拒绝
+        check(rejected.get() == 0, "并发数低于上限时仍有 " + rejected.get() + " 次尝试被拒绝");
+        int remaining = 0;
+        while (remaining <= limit && limiter.tryAcquire("Later", shared, NOW) == null) {
+            remaining++;
+        }
+        check(remaining == limit, "退还后 IP 还剩 " + remaining + " 次机会，应为 " + limit);
+    }
+
+    // 网段超限时退还已经占用的账户和 IP 计数，账户剩余的机会只扣掉真正放行的次数
+    private static void rejectedAttemptsRelease() throws Exception {
+        int accountLimit = 1000;
+        int subnetLimit = 200;
+        LoginRateLimiter limiter = new LoginRateLimiter(new LoginRateLimiter.Settings(WINDOW, accountLimit,
+            UNLIMITED, subnetLimit, 65536));
+        int[] allowed = new int[THREADS];
+        runConcurrently(thread -> {
+            InetAddress address = address(198, 51, 100, thread + 1);
+            for (int i = 0; i < 1000; i++) {
+                if (limiter.tryAcquire("Account" + thread, address, NOW) == null) {
+                    allowed[thread]++;
+                }
+            }
+        });
+        int total = 0;
+        for (int thread = 0; thread < THREADS; thread++) {
+            total += allowed[thread];
+            // 换到其他网段，每个网段只用一次
+            int remaining = 0;
+            for (int i = 0; i < 2 * accountLimit; i++) {
+                if (limiter.tryAcquire("Account" + thread, address(10, i >>> 8, i, 1), NOW) == null) {
+                    remaining++;
+                }
+            }
+            check(remaining == accountLimit - allowed[thread], "账户 " + thread + " 放行 " + allowed[thread]
+                + " 次后还剩 " + remaining + " 次机会，应为 " + (accountLimit - allowed[thread]));
+        }
+        check(total == subnetLimit, "同一网段放行了 " + total + " 次，上限为 " + subnetLimit);
+    }
+
+    // 哈希线程池已满时密码没有被校验，release 退还账户、IP 和网段的计数，之后三个维度都能重新用满
+    private static void uncheckedAttemptsRelease() throws Exception {
+        int limit = 50;
+        LoginRateLimiter limiter = new LoginRateLimiter(new LoginRateLimiter.Settings(WINDOW, limit, limit, limit,
+            65536));
+        InetAddress shared = address(203, 0, 113, 9);
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < 100000; i++) {
+                if (limiter.tryAcquire("Busy", shared, NOW) == null) {
+                    limiter.release("Busy", shared, NOW);
+                } else {
+                    rejected.incrementAndGet();
+                }
+            }
+        });
+        check(rejected.get() == 0, "退还后仍有 " + rejected.get() + " 次尝试被拒绝");
+        int remaining = 0;
+        while (remaining <= limit && limiter.tryAcquire("Busy", shared, NOW) == null) {
+            remaining++;
+        }
+        check(remaining == limit, "退还后还剩 " + remaining + " 次机会，应为 " + limit);
+    }
+
+    private static void runConcurrently(Worker worker) throws Exception {
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        Thread[] threads = new Thread[THREADS];
+        Throwable[] failure = new Throwable[1];
+        for (int i = 0; i < THREADS; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    worker.run(index);
+                } catch (Throwable e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "rate-limiter-stress-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError("压力线程异常退出", failure[0]);
+        }
+    }
+
+    private static InetAddress address(int a, int b, int c, int d) throws Exception {
+        return InetAddress.getByAddress(new byte[] {(byte) a, (byte) b, (byte) c, (byte) d});
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+}
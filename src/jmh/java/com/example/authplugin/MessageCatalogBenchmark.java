@@ -0,0 +1,81 @@
+package com.example.authplugin;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拒绝命令和聊天时发送提示的开销。inline* 是改用消息目录之前每次新建 Component 的写法，
+ * catalog* 直接复用解析好的 Component；配合 -prof gc 运行对比 gc.alloc.rate.norm，
+ * catalog 的无占位符消息应为 0 B/op。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MessageCatalogBenchmark {
+    private MessageCatalog catalog;
+    private MessageCatalog localizedCatalog;
+    private Audience audience;
+
+    @Setup
+    public void setUp(Blackhole blackhole) throws Exception {
+        catalog = AuthConfig.defaults().getMessages();
+        localizedCatalog = MessageCatalog.parse(YamlConfigurationLoader.builder().buildAndLoadString(String.join("\n",
+            "default-locale: zh_cn",
+            "en_us:",
+            "  command-needs-login: \"<red>Please /login <gray>first\"",
+            "  chat-needs-login: \"&cPlease log in before chatting\"")), null);
+        audience = new Audience() {
+            @Override
+            public void sendMessage(Component message) {
+                blackhole.consume(message);
+            }
+        };
+    }
+
+    @Benchmark
+    public void inlineDeniedCommand() {
+        audience.sendMessage(Component.text("§c请先使用 /login <密码> 登录！"));
+    }
+
+    @Benchmark
+    public void catalogDeniedCommand() {
+        catalog.send(audience, Message.COMMAND_NEEDS_LOGIN);
+    }
+
+    @Benchmark
+    public void inlineDeniedChat() {
+        audience.sendMessage(Component.text("§c请先登录后再聊天！"));
+    }
+
+    @Benchmark
+    public void catalogDeniedChat() {
+        catalog.send(audience, Message.CHAT_NEEDS_LOGIN);
+    }
+
+    @Benchmark
+    public Component catalogLocalized() {
+        return localizedCatalog.get(Message.CHAT_NEEDS_LOGIN, Locale.US);
+    }
+
+    @Benchmark
+    public void inlineWelcome() {
+        audience.sendMessage(Component.text("§a欢迎正版玩家 " + "Steve"));
+    }
+
+    @Benchmark
+    public void catalogWelcome() {
+        catalog.send(audience, Message.WELCOME_PREMIUM, "Steve");
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事件处理器中计时的额外开销：两次 nanoTime 加一次直方图记录。
+ * 与 AuthListenerBenchmark 的结果对比即为监控在事件路径上的占比。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    public long nanoTimeOnly() {
+        return System.nanoTime() - System.nanoTime();
+    }
+
+    @Benchmark
+    public LatencyHistogram timedRecord() {
+        long start = System.nanoTime();
+        histogram.record(System.nanoTime() - start);
+        return histogram;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 白名单查询耗时应与条目数无关：命中、未命中和前缀匹配在各个规模下应基本相同。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OfflineWhitelistBenchmark {
+    @Param({"100", "10000", "100000"})
+    public int entries;
+
+    private OfflineWhitelist whitelist;
+    private String hit;
+
+    @Setup
+    public void setUp() {
+        List<String> names = new ArrayList<>(entries + 10);
+        for (int i = 0; i < entries; i++) {
+            names.add("Player" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            names.add("guest" + i + "_*");
+        }
+        whitelist = OfflineWhitelist.of(names);
+        hit = "PLAYER" + (entries / 2);
+    }
+
+    @Benchmark
+    public boolean exactHit() {
+        return whitelist.contains(hit);
+    }
+
+    @Benchmark
+    public boolean miss() {
+        return whitelist.contains("SomeoneElse");
+    }
+
+    @Benchmark
+    public boolean prefixHit() {
+        return whitelist.contains("Guest7_Steve");
+    }
+}
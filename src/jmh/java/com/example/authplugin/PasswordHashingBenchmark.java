@@ -0,0 +1,59 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各算法和成本参数下一次哈希和校验的耗时，用来调整 config.yml 的 hashing 设置。
+ * 参数写法与配置项对应：pbkdf2:迭代次数、bcrypt:成本、argon2:内存KiB:迭代次数（并行度固定为 1）。
+ * 登录高峰时每个哈希线程每秒能处理的登录数约为 1000 / verify 毫秒数。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class PasswordHashingBenchmark {
+    private static final String PASSWORD = "Benchmark123";
+
+    @Param({"pbkdf2:100000", "pbkdf2:310000", "pbkdf2:600000",
+        "bcrypt:10", "bcrypt:12", "bcrypt:14",
+        "argon2:19456:2", "argon2:47104:1", "argon2:65536:3"})
+    public String hasher;
+
+    private PasswordHasher passwordHasher;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        String[] parts = hasher.split(":");
+        int cost = Integer.parseInt(parts[1]);
+        int iterations = parts.length > 2 ? Integer.parseInt(parts[2]) : 1;
+        passwordHasher = PasswordHashingService.createHasher(parts[0], cost, cost, cost, iterations, 1,
+            NOPLogger.NOP_LOGGER);
+        encoded = passwordHasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public String hash() {
+        return passwordHasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return passwordHasher.verify(PASSWORD, encoded);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.authplugin;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 模拟不断更换用户名和 IP 的撞库攻击。每次调用都是一个新的用户名，
+ * 计数表容量固定，配合 -prof gc 可以看到内存不随尝试次数增长。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+    private static final int NAMES = 1 << 20;
+
+    private LoginRateLimiter limiter;
+    private String[] names;
+    private InetAddress[] addresses;
+    private int next;
+
+    @Setup
+    public void setUp() throws Exception {
+        limiter = new LoginRateLimiter(new LoginRateLimiter.Settings(300000, 3, 10, 30, 65536));
+        names = new String[NAMES];
+        addresses = new InetAddress[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "bot" + i;
+            addresses[i] = InetAddress.getByAddress(new byte[] {10, (byte) (i >>> 16), (byte) (i >>> 8), (byte) i});
+        }
+    }
+
+    @Benchmark
+    public LoginRateLimiter.Scope distinctNames() {
+        int index = next++ & (NAMES - 1);
+        return limiter.tryAcquire(names[index], addresses[index], System.currentTimeMillis());
+    }
+}
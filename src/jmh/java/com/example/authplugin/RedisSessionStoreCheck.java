@@ -0,0 +1,112 @@
+package com.example.authplugin;
+
+import org.slf4j.helpers.NOPLogger;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 用进程内的 {@link FakeRedisServer} 驱动 RedisSessionStore：AUTH 和 SELECT、GET/SET PX/DEL、
+ * 按 PX 过期、已过期的记录改为 DEL，以及服务器返回错误或格式错误的响应后丢弃连接、下一条命令重新连接。
+ * 用法：./gradlew jmhChecks，检查失败时抛出 AssertionError。
+ */
+public final class RedisSessionStoreCheck {
+    private static final String PREFIX = "auth:session:";
+
+    private RedisSessionStoreCheck() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        try (FakeRedisServer server = new FakeRedisServer("secret")) {
+            RedisSessionStore store = new RedisSessionStore("127.0.0.1", server.getPort(), "secret", 2, PREFIX,
+                2000, 1, NOPLogger.NOP_LOGGER);
+            try {
+                run(server, store);
+            } finally {
+                store.close();
+            }
+        }
+        System.out.println("Redis 会话存储检查通过");
+    }
+
+    private static void run(FakeRedisServer server, RedisSessionStore store) throws Exception {
+        UUID uuid = CredentialIndexBenchmark.offlineUuid("Alice");
+        String key = PREFIX + uuid;
+
+        // 新连接先认证再选库
+        check(!store.lookup(uuid).join().isPresent(), "没有保存过的会话不应该存在");
+        List<List<String>> commands = server.getCommands();
+        check(commands.get(0).equals(Arrays.asList("AUTH", "secret")), "第一条命令应为 AUTH: " + commands);
+        check(commands.get(1).equals(Arrays.asList("SELECT", "2")), "第二条命令应为 SELECT 2: " + commands);
+
+        // SET 带 PX，GET 读回同样的记录
+        SessionRecord record = new SessionRecord("Alice", "203.0.113.7", System.currentTimeMillis() + 60000);
+        store.save(uuid, record).join();
+        long ttl = server.ttlMillis(key);
+        check(ttl > 55000 && ttl <= 60000, "SET 的 PX 为 " + ttl + " 毫秒，应接近 60000");
+        Optional<SessionRecord> loaded = store.lookup(uuid).join();
+        check(loaded.isPresent() && loaded.get().getUsername().equals("Alice")
+            && loaded.get().getAddress().equals("203.0.113.7")
+            && loaded.get().getExpiresAt() == record.getExpiresAt(), "读回的会话与保存的不同");
+
+        // DEL
+        store.delete(uuid).join();
+        check(!server.contains(key) && !store.lookup(uuid).join().isPresent(), "DEL 后会话仍然存在");
+
+        // 由服务器按 PX 过期，而不是靠客户端比较过期时间
+        store.save(uuid, new SessionRecord("Alice", "203.0.113.7", System.currentTimeMillis() + 200)).join();
+        check(server.contains(key), "短期会话没有写入");
+        Thread.sleep(400);
+        check(!server.contains(key), "PX 到期后服务器仍保留会话");
+        check(!store.lookup(uuid).join().isPresent(), "过期的会话仍然可以读到");
+
+        // 已经过期的记录不写入，直接删除
+        store.save(uuid, record).join();
+        store.save(uuid, new SessionRecord("Alice", "203.0.113.7", System.currentTimeMillis() - 1)).join();
+        List<String> last = commands.get(commands.size() - 1);
+        check(last.equals(Arrays.asList("DEL", key)) && !server.contains(key), "过期记录应改为 DEL: " + last);
+
+        // 错误响应让 future 失败，出错的连接被丢弃，之后的命令正常执行
+        store.save(uuid, record).join();
+        int connections = server.getConnectionCount();
+        server.failNext("ERR injected failure");
+        try {
+            store.lookup(uuid).join();
+            throw new AssertionError("服务器返回错误时 lookup 应该失败");
+        } catch (CompletionException e) {
+            check(e.getCause() instanceof IOException && e.getCause().getMessage().contains("injected failure"),
+                "错误响应应以 IOException 返回: " + e.getCause());
+        }
+        check(store.lookup(uuid).join().isPresent(), "错误之后的命令没有恢复");
+        check(server.getConnectionCount() == connections + 1, "出错的连接应被丢弃并重新连接");
+
+        // 格式错误的响应同样让 future 失败而不是一直挂起，连接被丢弃
+        for (String malformed : new String[] {"$abc", ":", "*x"}) {
+            connections = server.getConnectionCount();
+            server.replyNextRaw(malformed);
+            try {
+                store.lookup(uuid).get(5, TimeUnit.SECONDS);
+                throw new AssertionError("格式错误的响应 " + malformed + " 时 lookup 应该失败");
+            } catch (TimeoutException e) {
+                throw new AssertionError("格式错误的响应 " + malformed + " 让 lookup 一直没有结束");
+            } catch (ExecutionException e) {
+                check(e.getCause() instanceof IOException, "格式错误的响应应以 IOException 返回: " + e.getCause());
+            }
+            check(store.lookup(uuid).join().isPresent(), "格式错误的响应之后命令没有恢复");
+            check(server.getConnectionCount() == connections + 1, "收到格式错误响应的连接应被丢弃");
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import org.slf4j.Logger;
+
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PreLoginEvent 阶段的准入控制：全局每秒进服预算（GCRA 令牌桶）加上每个 IP 的同时连接上限。
+ * 拒绝路径只读 Map 和原子变量，不分配对象，洪水攻击时尽早丢弃连接。
+ * 连接在 PreLoginEvent 放行时计数，断线时释放；没有走到断线事件的连接由定期对账修正。
+ */
+public class AdmissionController {
+    public enum Decision {
+        ALLOWED, GLOBAL_LIMIT, IP_LIMIT
+    }
+
+    private static final long RECONCILE_INTERVAL_SECONDS = 30;
+    // 刚放行的连接还没有出现在玩家列表中，对账时跳过这段时间内有新连接的 IP
+    private static final long PENDING_GRACE_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final ProxyServer server;
+    private final Logger logger;
+    private final Map<InetAddress, Slot> slots = new ConcurrentHashMap<>();
+    private final AtomicLong theoreticalArrival = new AtomicLong(System.nanoTime());
+    private final ScheduledExecutorService scheduler;
+    private volatile long emissionIntervalNanos;
+    private volatile long burstToleranceNanos;
+    private volatile int maxPerIp;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedGlobal = new LongAdder();
+    private final LongAdder rejectedPerIp = new LongAdder();
+    private long lastReportedRejections;
+
+    public AdmissionController(ProxyServer server, Logger logger, int joinsPerSecond, int burst, int maxPerIp) {
+        this.server = server;
+        this.logger = logger;
+        configure(joinsPerSecond, burst, maxPerIp);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-admission");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::reconcile, RECONCILE_INTERVAL_SECONDS,
+            RECONCILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // joinsPerSecond 或 maxPerIp 为 0 时不做对应的限制
+    public void configure(int joinsPerSecond, int burst, int maxPerIp) {
+        long interval = joinsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / joinsPerSecond : 0;
+        this.emissionIntervalNanos = interval;
+        this.burstToleranceNanos = interval * Math.max(0, burst - 1);
+        this.maxPerIp = maxPerIp > 0 ? maxPerIp : Integer.MAX_VALUE;
+    }
+
+    public Decision tryAdmit(InetAddress address) {
+        Slot slot = slots.get(address);
+        if (slot != null && slot.active.get() >= maxPerIp) {
+            rejectedPerIp.increment();
+            return Decision.IP_LIMIT;
+        }
+        if (!tryAcquireGlobal(System.nanoTime())) {
+            rejectedGlobal.increment();
+            return Decision.GLOBAL_LIMIT;
+        }
+        if (slot == null) {
+            slot = slots.computeIfAbsent(address, ignored -> new Slot());
+        }
+        slot.lastAcquire = System.nanoTime();
+        int active;
+        do {
+            active = slot.active.get();
+            if (active >= maxPerIp) {
+                rejectedPerIp.increment();
+                return Decision.IP_LIMIT;
+            }
+        } while (!slot.active.compareAndSet(active, active + 1));
+        accepted.increment();
+        return Decision.ALLOWED;
+    }
+
+    public void release(InetAddress address) {
+        Slot slot = slots.get(address);
+        if (slot != null) {
+            slot.active.updateAndGet(active -> Math.max(0, active - 1));
+        }
+    }
+
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    public long getRejectedGlobalCount() {
+        return rejectedGlobal.sum();
+    }
+
+    public long getRejectedPerIpCount() {
+        return rejectedPerIp.sum();
+    }
+
+    public int getTrackedAddresses() {
+        return slots.size();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // GCRA：每个连接把理论到达时间推后一个间隔，超前当前时间不超过突发容量时放行
+    private boolean tryAcquireGlobal(long now) {
+        long interval = emissionIntervalNanos;
+        if (interval == 0) {
+            return true;
+        }
+        long tolerance = burstToleranceNanos;
+        long tat;
+        long next;
+        do {
+            tat = theoreticalArrival.get();
+            long base = Math.max(tat, now);
+            if (base - now > tolerance) {
+                return false;
+            }
+            next = base + interval;
+        } while (!theoreticalArrival.compareAndSet(tat, next));
+        return true;
+    }
+
+    // 按当前在线玩家重新计算每个 IP 的连接数，修正 PreLogin 之后没有触发断线事件的连接
+    private void reconcile() {
+        try {
+            Map<InetAddress, Integer> online = new HashMap<>();
+            for (Player player : server.getAllPlayers()) {
+                online.merge(player.getRemoteAddress().getAddress(), 1, Integer::sum);
+            }
+            long now = System.nanoTime();
+            Iterator<Map.Entry<InetAddress, Slot>> iterator = slots.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<InetAddress, Slot> entry = iterator.next();
+                Slot slot = entry.getValue();
+                if (now - slot.lastAcquire < PENDING_GRACE_NANOS) {
+                    continue;
+                }
+                int count = online.getOrDefault(entry.getKey(), 0);
+                if (count == 0) {
+                    iterator.remove();
+                } else {
+                    slot.active.set(count);
+                }
+            }
+
+            long rejections = rejectedGlobal.sum() + rejectedPerIp.sum();
+            if (rejections > lastReportedRejections) {
+                logger.warn("过去 " + RECONCILE_INTERVAL_SECONDS + " 秒内拒绝了 "
+                    + (rejections - lastReportedRejections) + " 个连接");
+            }
+            lastReportedRejections = rejections;
+        } catch (Exception e) {
+            logger.error("连接计数对账失败", e);
+        }
+    }
+
+    private static final class Slot {
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile long lastAcquire;
+    }
+}
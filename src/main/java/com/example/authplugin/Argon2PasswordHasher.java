@@ -0,0 +1,95 @@
+package com.example.authplugin;
+
+import org.bouncycastle.crypto.generators.Argon2BytesGenerator;
+import org.bouncycastle.crypto.params.Argon2Parameters;
+
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+// 格式：$argon2id$v=19$m=内存,t=迭代,p=并行度$盐$哈希
+public class Argon2PasswordHasher implements PasswordHasher {
+    private static final String PREFIX = "$argon2id$v=19$";
+    private static final int SALT_LENGTH = 16;
+    private static final int HASH_LENGTH = 32;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int memoryKib;
+    private final int iterations;
+    private final int parallelism;
+
+    public Argon2PasswordHasher(int memoryKib, int iterations, int parallelism) {
+        this.memoryKib = Math.max(8, memoryKib);
+        this.iterations = Math.max(1, iterations);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + parameters() + "$" + encoder.encodeToString(salt) + "$"
+            + encoder.encodeToString(derive(password, salt, memoryKib, iterations, parallelism, HASH_LENGTH));
+    }
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        String[] parts = encoded.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        int memory = 0;
+        int time = 0;
+        int lanes = 0;
+        for (String parameter : parts[0].split(",")) {
+            int value = Integer.parseInt(parameter.substring(2));
+            switch (parameter.charAt(0)) {
+                case 'm':
+                    memory = value;
+                    break;
+                case 't':
+                    time = value;
+                    break;
+                case 'p':
+                    lanes = value;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[2]);
+        byte[] actual = derive(password, decoder.decode(parts[1]), memory, time, lanes, expected.length);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    @Override
+    public boolean supports(String encoded) {
+        return encoded.startsWith(PREFIX);
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        return !encoded.startsWith(PREFIX + parameters() + "$");
+    }
+
+    private String parameters() {
+        return "m=" + memoryKib + ",t=" + iterations + ",p=" + parallelism;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int memoryKib, int iterations, int parallelism, int length) {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+            .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+            .withSalt(salt)
+            .withMemoryAsKB(memoryKib)
+            .withIterations(iterations)
+            .withParallelism(parallelism)
+            .build();
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(parameters);
+        byte[] hash = new byte[length];
+        generator.generateBytes(password.toCharArray(), hash);
+        return hash;
+    }
+}
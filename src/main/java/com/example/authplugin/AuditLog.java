@@ -0,0 +1,341 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 安全审计日志。事件线程只把事件的字段写进预先分配好的环形缓冲区，不格式化、不分配对象、不加锁；
+ * 单独的写入线程定期把缓冲区里的事件批量写成 gzip 压缩的 JSON Lines 文件，每天或文件超过上限时滚动。
+ * 缓冲区满时丢弃新事件并计数，不会阻塞事件线程。
+ *
+ * 环形缓冲区是有界的多生产者队列：每个槽位有一个序号，生产者 CAS 抢到位置后写入字段，
+ * 再发布序号；写入线程看到序号后读取字段，并把序号推进一圈表示槽位可以复用。
+ */
+public class AuditLog {
+    public enum Event {
+        JOIN,
+        DENY,
+        LOGIN_SUCCESS,
+        LOGIN_FAILURE,
+        REGISTER,
+        RATE_LIMIT,
+        SESSION_RESTORE;
+
+        private final String json = name().toLowerCase(Locale.ROOT);
+    }
+
+    static final String FILE_PREFIX = "audit-";
+    static final String FILE_SUFFIX = ".jsonl.gz";
+    static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Event[] EVENTS = Event.values();
+
+    private final boolean enabled;
+    private final File directory;
+    private final Logger logger;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final int maxFiles;
+
+    private final int mask;
+    // 每写入四分之一个缓冲区的事件就唤醒一次写入线程，突发流量时不必等到下一个写入周期
+    private final int wakeMask;
+    private final AtomicLongArray sequences;
+    private final long[] times;
+    private final byte[] events;
+    private final UUID[] uuids;
+    private final String[] usernames;
+    private final InetAddress[] addresses;
+    private final String[] details;
+    private final AtomicLong tail = new AtomicLong();
+    // 只由写入线程修改，其他线程读到的只用于监控
+    private volatile long head;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean closing;
+    private Thread writerThread;
+
+    private Writer out;
+    private File currentFile;
+    private LocalDate currentDay;
+
+    public AuditLog(File directory, Logger logger, boolean enabled, int bufferSize, long flushIntervalMillis,
+                    long maxFileBytes, int maxFiles) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.logger = logger;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(10, flushIntervalMillis));
+        this.maxFileBytes = Math.max(1024, maxFileBytes);
+        this.maxFiles = maxFiles;
+
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(bufferSize, 1 << 24)) - 1) << 1;
+        this.mask = capacity - 1;
+        this.wakeMask = capacity / 4 - 1;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.times = new long[capacity];
+        this.events = new byte[capacity];
+        this.uuids = new UUID[capacity];
+        this.usernames = new String[capacity];
+        this.addresses = new InetAddress[capacity];
+        this.details = new String[capacity];
+    }
+
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warn("无法创建审计日志目录 " + directory + "，审计日志已关闭");
+            return;
+        }
+        writerThread = new Thread(this::runWriter, "auth-plugin-audit-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * 记录一条事件，uuid、address 和 detail 可以为 null。缓冲区满或日志未开启时直接丢弃。
+     */
+    public void record(Event event, UUID uuid, String username, InetAddress address, String detail) {
+        if (writerThread == null) {
+            return;
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    times[index] = System.currentTimeMillis();
+                    events[index] = (byte) event.ordinal();
+                    uuids[index] = uuid;
+                    usernames[index] = username;
+                    addresses[index] = address;
+                    details[index] = detail;
+                    sequences.lazySet(index, position + 1);
+                    if ((position & wakeMask) == 0) {
+                        LockSupport.unpark(writerThread);
+                    }
+                    return;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 写入线程跟不上，丢弃新事件
+                dropped.incrementAndGet();
+                return;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    public int getPending() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    /**
+     * 停止接收事件，写完缓冲区中剩余的事件后关闭文件。
+     */
+    public void close() {
+        Thread thread = writerThread;
+        if (thread == null) {
+            return;
+        }
+        closing = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        StringBuilder line = new StringBuilder(256);
+        while (true) {
+            boolean stopping = closing;
+            int count = 0;
+            try {
+                count = drain(line);
+                if (count > 0) {
+                    out.flush();
+                    written.addAndGet(count);
+                    if (currentFile.length() >= maxFileBytes) {
+                        closeFile();
+                    }
+                }
+            } catch (IOException e) {
+                logger.warn("无法写入审计日志: " + e.getMessage());
+                closeQuietly();
+            }
+            if (count == 0) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+        }
+        closeQuietly();
+    }
+
+    // 写出缓冲区中已发布的事件，每批最多四分之一个缓冲区，返回写出的条数
+    private int drain(StringBuilder line) throws IOException {
+        int count = 0;
+        while (count <= wakeMask) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                return count;
+            }
+            long time = times[index];
+            line.setLength(0);
+            format(line, time, EVENTS[events[index]], uuids[index], usernames[index], addresses[index],
+                details[index]);
+            uuids[index] = null;
+            usernames[index] = null;
+            addresses[index] = null;
+            details[index] = null;
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+
+            writerFor(time).append(line);
+            count++;
+        }
+        return count;
+    }
+
+    static void format(StringBuilder line, long time, Event event, UUID uuid, String username,
+                       InetAddress address, String detail) {
+        line.append("{\"ts\":").append(time)
+            .append(",\"time\":\"").append(DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(time)))
+            .append("\",\"event\":\"").append(event.json).append('"');
+        if (uuid != null) {
+            line.append(",\"uuid\":\"").append(uuid).append('"');
+        }
+        if (username != null) {
+            appendString(line.append(",\"name\":"), username);
+        }
+        if (address != null) {
+            line.append(",\"ip\":\"").append(address.getHostAddress()).append('"');
+        }
+        if (detail != null) {
+            appendString(line.append(",\"detail\":"), detail);
+        }
+        line.append("}\n");
+    }
+
+    private static void appendString(StringBuilder line, String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c < 0x20) {
+                line.append(String.format("\\u%04x", (int) c));
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    // 当前文件；日期变化时滚动到新文件
+    private Writer writerFor(long time) throws IOException {
+        LocalDate day = Instant.ofEpochMilli(time).atZone(ZoneId.systemDefault()).toLocalDate();
+        if (out != null && !day.equals(currentDay)) {
+            closeFile();
+        }
+        if (out == null) {
+            currentDay = day;
+            currentFile = nextFile(day);
+            // syncFlush：每批写完后数据已经可以解压读取，进程崩溃最多丢失最后一批
+            out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(currentFile), 65536, true), StandardCharsets.UTF_8),
+                65536);
+            purgeOldFiles();
+        }
+        return out;
+    }
+
+    private File nextFile(LocalDate day) {
+        String prefix = FILE_PREFIX + FILE_DATE.format(day) + "-";
+        int sequence = 1;
+        String[] existing = directory.list();
+        if (existing != null) {
+            for (String name : existing) {
+                if (name.startsWith(prefix) && name.endsWith(FILE_SUFFIX)) {
+                    try {
+                        sequence = Math.max(sequence, Integer.parseInt(
+                            name.substring(prefix.length(), name.length() - FILE_SUFFIX.length())) + 1);
+                    } catch (NumberFormatException ignored) {
+                        // 不是本插件生成的文件
+                    }
+                }
+            }
+        }
+        return new File(directory, prefix + String.format("%03d", sequence) + FILE_SUFFIX);
+    }
+
+    // 文件名按日期和序号排序，超过 maxFiles 时删除最旧的
+    private void purgeOldFiles() {
+        if (maxFiles <= 0) {
+            return;
+        }
+        String[] names = directory.list((dir, name) -> name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX));
+        if (names == null || names.length <= maxFiles) {
+            return;
+        }
+        Arrays.sort(names);
+        for (int i = 0; i < names.length - maxFiles; i++) {
+            if (!new File(directory, names[i]).delete()) {
+                logger.warn("无法删除旧的审计日志 " + names[i]);
+            }
+        }
+    }
+
+    private void closeFile() throws IOException {
+        Writer writer = out;
+        out = null;
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            closeFile();
+        } catch (IOException e) {
+            logger.warn("无法关闭审计日志: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.authplugin;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 离线查询审计日志，不需要启动代理：
+ * <pre>
+ * java -cp auth-plugin.jar com.example.authplugin.AuditQuery [--uuid UUID] [--ip IP] [--name 玩家名]
+ *     [--event login_failure] [--from 时间] [--to 时间] [目录或文件...]
+ * </pre>
+ * 时间可以写 2026-10-18、2026-10-18T20:00（本地时区）或 2026-10-18T12:00:00Z，--to 不包含在内。
+ * 不指定文件时读取 plugins/auth-plugin/audit。匹配的记录按原样输出到标准输出，每行一条 JSON。
+ */
+public final class AuditQuery {
+    private String uuid;
+    private String ip;
+    private String name;
+    private String event;
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+
+    private AuditQuery() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        AuditQuery query = new AuditQuery();
+        List<File> inputs = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.startsWith("--") && i + 1 >= args.length) {
+                    throw new IllegalArgumentException("缺少 " + arg + " 的值");
+                }
+                switch (arg) {
+                    case "--uuid":
+                        query.uuid = args[++i].toLowerCase(Locale.ROOT);
+                        break;
+                    case "--ip":
+                        query.ip = args[++i];
+                        break;
+                    case "--name":
+                        query.name = args[++i];
+                        break;
+                    case "--event":
+                        query.event = args[++i].toLowerCase(Locale.ROOT);
+                        break;
+                    case "--from":
+                        query.from = parseTime(args[++i]);
+                        break;
+                    case "--to":
+                        query.to = parseTime(args[++i]);
+                        break;
+                    default:
+                        if (arg.startsWith("--")) {
+                            throw new IllegalArgumentException("未知参数 " + arg);
+                        }
+                        inputs.add(new File(arg));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("用法: AuditQuery [--uuid UUID] [--ip IP] [--name 玩家名] [--event 事件]"
+                + " [--from 时间] [--to 时间] [目录或文件...]");
+            System.exit(2);
+            return;
+        }
+        if (inputs.isEmpty()) {
+            inputs.add(new File("plugins/auth-plugin/audit"));
+        }
+
+        long matched = 0;
+        for (File file : query.collect(inputs)) {
+            matched += query.scan(file);
+        }
+        System.err.println("共匹配 " + matched + " 条记录");
+    }
+
+    static long parseTime(String value) {
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // 不是 UTC 时间，按本地时区解析
+        }
+        try {
+            return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // 只有日期
+        }
+        try {
+            return LocalDate.parse(value).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("无法解析时间 " + value);
+        }
+    }
+
+    // 展开目录并按文件名（日期、序号）排序，日期不在查询范围内的文件直接跳过
+    private List<File> collect(List<File> inputs) {
+        List<File> files = new ArrayList<>();
+        for (File input : inputs) {
+            if (input.isDirectory()) {
+                File[] children = input.listFiles((dir, child) -> child.startsWith(AuditLog.FILE_PREFIX)
+                    && child.endsWith(AuditLog.FILE_SUFFIX));
+                if (children != null) {
+                    Collections.addAll(files, children);
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        files.sort((a, b) -> a.getName().compareTo(b.getName()));
+        files.removeIf(file -> !mayContain(file));
+        return files;
+    }
+
+    private boolean mayContain(File file) {
+        String fileName = file.getName();
+        if (!fileName.startsWith(AuditLog.FILE_PREFIX) || fileName.length() < AuditLog.FILE_PREFIX.length() + 8) {
+            return true;
+        }
+        int dateStart = AuditLog.FILE_PREFIX.length();
+        LocalDate day;
+        try {
+            day = LocalDate.parse(fileName.substring(dateStart, dateStart + 8), AuditLog.FILE_DATE);
+        } catch (DateTimeParseException e) {
+            return true;
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        long start = day.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return end > from && start < to;
+    }
+
+    // 按字节切分行：正在写入的文件没有 gzip 结尾，读到末尾时会抛出 EOFException，
+    // 套一层 Reader 会连同已经解压出来的最后一段一起丢掉
+    private long scan(File file) throws IOException {
+        long matched = 0;
+        byte[] chunk = new byte[65536];
+        byte[] line = new byte[512];
+        int length = 0;
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file), 65536)) {
+            while (true) {
+                int read;
+                try {
+                    read = in.read(chunk);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (read < 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] != '\n') {
+                        if (length == line.length) {
+                            line = Arrays.copyOf(line, length * 2);
+                        }
+                        line[length++] = chunk[i];
+                        continue;
+                    }
+                    String text = new String(line, 0, length, StandardCharsets.UTF_8);
+                    length = 0;
+                    if (matches(text)) {
+                        System.out.println(text);
+                        matched++;
+                    }
+                }
+            }
+        }
+        return matched;
+    }
+
+    private boolean matches(String line) {
+        if (from != Long.MIN_VALUE || to != Long.MAX_VALUE) {
+            long time = timestamp(line);
+            if (time < from || time >= to) {
+                return false;
+            }
+        }
+        return (uuid == null || uuid.equals(field(line, "uuid")))
+            && (ip == null || ip.equals(field(line, "ip")))
+            && (name == null || name.equalsIgnoreCase(field(line, "name")))
+            && (event == null || event.equals(field(line, "event")));
+    }
+
+    private static long timestamp(String line) {
+        int start = line.indexOf("\"ts\":");
+        if (start < 0) {
+            return Long.MIN_VALUE;
+        }
+        start += 5;
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+        try {
+            return Long.parseLong(line.substring(start, end));
+        } catch (NumberFormatException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    // 读取字符串字段；玩家名和 IP 不含需要转义的字符，这里不处理转义
+    private static String field(String line, String key) {
+        String prefix = "\"" + key + "\":\"";
+        int start = line.indexOf(prefix);
+        if (start < 0) {
+            return null;
+        }
+        start += prefix.length();
+        int end = line.indexOf('"', start);
+        return end < 0 ? null : line.substring(start, end);
+    }
+}
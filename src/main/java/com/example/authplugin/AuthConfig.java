@@ -0,0 +1,527 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * config.yml 的不可变快照。重载时在后台线程解析出新的快照，再通过一次 volatile 写入整体替换，
+ * 事件线程读到的永远是某一份完整的配置，不会看到新旧混合的字段。
+ * 配置里缺少的项沿用上一份快照的值，第一次加载时沿用默认值。
+ */
+public final class AuthConfig {
+    private final OfflineWhitelist offlineWhitelist;
+    // 与上一份快照相比白名单的变化，只用于重载时记录日志
+    private final OfflineWhitelist.Update whitelistUpdate;
+    private final String denyMessage;
+    private final MessageCatalog messages;
+    private final CommandGate commandGate;
+
+    private final String storageType;
+    private final int storageBatchSize;
+    private final int storageCompactThreshold;
+    private final String h2Url;
+    private final int h2PoolSize;
+    private final int h2StatementCacheSize;
+
+    private final int workerThreads;
+    private final int workerQueueSize;
+
+    private final String hashAlgorithm;
+    private final int pbkdf2Iterations;
+    private final int bcryptCost;
+    private final int argon2MemoryKib;
+    private final int argon2Iterations;
+    private final int argon2Parallelism;
+    private final int hashingThreads;
+    private final int hashingQueueSize;
+
+    private final String mojangApiUrl;
+    private final long mojangPositiveTtl;
+    private final long mojangNegativeTtl;
+    private final long mojangMaxStale;
+    private final int mojangCacheSize;
+    private final int mojangTimeout;
+    private final int mojangThreads;
+    private final long mojangBatchWindow;
+    private final int mojangBatchSize;
+
+    private final long rateLimitWindow;
+    private final int rateLimitAccount;
+    private final int rateLimitIp;
+    private final int rateLimitSubnet;
+    private final int rateLimitCapacity;
+
+    private final int admissionJoinsPerSecond;
+    private final int admissionBurst;
+    private final int admissionMaxPerIp;
+
+    private final List<String> lobbyServers;
+    private final List<String> destinationServers;
+    private final long routingRefreshInterval;
+
+    private final int dispatchMaxInFlight;
+    private final int dispatchMaxRetries;
+    private final long dispatchRetryDelay;
+
+    private final String sessionType;
+    private final long sessionTtl;
+    private final boolean sessionBindIp;
+    private final long sessionNearCacheTtl;
+    private final String redisHost;
+    private final int redisPort;
+    private final String redisPassword;
+    private final int redisDatabase;
+    private final String redisKeyPrefix;
+    private final int redisTimeout;
+    private final int redisPoolSize;
+
+    private final long loginDeadline;
+    private final long loginReminderInterval;
+
+    private final String metricsBind;
+    private final int metricsPort;
+
+    private final boolean auditEnabled;
+    private final int auditBufferSize;
+    private final long auditFlushInterval;
+    private final long auditMaxFileSize;
+    private final int auditMaxFiles;
+
+    private final boolean limboEnabled;
+
+    // 默认配置
+    private AuthConfig() {
+        offlineWhitelist = OfflineWhitelist.empty();
+        whitelistUpdate = null;
+        denyMessage = "§c对不起，该用户不允许离线登录！请联系管理员";
+        messages = MessageCatalog.parse(null, denyMessage);
+        commandGate = new CommandGate(Arrays.asList("login", "register"));
+        storageType = "file";
+        storageBatchSize = 256;
+        storageCompactThreshold = 10000;
+        h2Url = "jdbc:h2:./plugins/auth-plugin/accounts";
+        h2PoolSize = 4;
+        h2StatementCacheSize = 16;
+        workerThreads = 4;
+        workerQueueSize = 1024;
+        hashAlgorithm = "pbkdf2";
+        pbkdf2Iterations = 310000;
+        bcryptCost = 12;
+        argon2MemoryKib = 19456;
+        argon2Iterations = 2;
+        argon2Parallelism = 1;
+        hashingThreads = 0;
+        hashingQueueSize = 256;
+        mojangApiUrl = "https://api.mojang.com";
+        mojangPositiveTtl = 21600;
+        mojangNegativeTtl = 600;
+        mojangMaxStale = 604800;
+        mojangCacheSize = 10000;
+        mojangTimeout = 5000;
+        mojangThreads = 4;
+        mojangBatchWindow = 50;
+        mojangBatchSize = MojangProfileResolver.BULK_LIMIT;
+        rateLimitWindow = 300; // 5分钟
+        rateLimitAccount = 3;
+        rateLimitIp = 10;
+        rateLimitSubnet = 30;
+        rateLimitCapacity = 65536;
+        admissionJoinsPerSecond = 0;
+        admissionBurst = 40;
+        admissionMaxPerIp = 0;
+        lobbyServers = Collections.singletonList("login");
+        destinationServers = Collections.singletonList("survival");
+        routingRefreshInterval = 10;
+        dispatchMaxInFlight = 8;
+        dispatchMaxRetries = 3;
+        dispatchRetryDelay = 1000;
+        sessionType = "local";
+        sessionTtl = 0;
+        sessionBindIp = true;
+        sessionNearCacheTtl = 5;
+        redisHost = "127.0.0.1";
+        redisPort = 6379;
+        redisPassword = "";
+        redisDatabase = 0;
+        redisKeyPrefix = "auth:session:";
+        redisTimeout = 2000;
+        redisPoolSize = 4;
+        loginDeadline = 120;
+        loginReminderInterval = 15;
+        metricsBind = "127.0.0.1";
+        metricsPort = 9225;
+        auditEnabled = true;
+        auditBufferSize = 65536;
+        auditFlushInterval = 1000;
+        auditMaxFileSize = 64;
+        auditMaxFiles = 30;
+        limboEnabled = false;
+    }
+
+    private AuthConfig(ConfigurationNode root, AuthConfig previous) {
+        whitelistUpdate = previous.offlineWhitelist.update(
+            readStringList(root.node("allowed-offline-players"), Collections.emptyList()));
+        offlineWhitelist = whitelistUpdate.getWhitelist();
+        denyMessage = root.node("deny-message").getString(previous.denyMessage);
+        // 消息模板在这里一次解析完，重载时新目录随快照一起替换
+        messages = MessageCatalog.parse(root.node("messages"), denyMessage);
+        ConfigurationNode commandsNode = root.node("auth-commands");
+        commandGate = commandsNode.virtual() ? previous.commandGate
+            : new CommandGate(readStringList(commandsNode, previous.commandGate.getCommands()));
+
+        ConfigurationNode asyncNode = root.node("async");
+        workerThreads = Math.max(1, asyncNode.node("worker-threads").getInt(previous.workerThreads));
+        workerQueueSize = Math.max(1, asyncNode.node("queue-size").getInt(previous.workerQueueSize));
+
+        ConfigurationNode storageNode = root.node("storage");
+        storageType = storageNode.node("type").getString(previous.storageType);
+        storageBatchSize = storageNode.node("batch-size").getInt(previous.storageBatchSize);
+        storageCompactThreshold = storageNode.node("compact-threshold").getInt(previous.storageCompactThreshold);
+        ConfigurationNode h2Node = storageNode.node("h2");
+        h2Url = h2Node.node("url").getString(previous.h2Url);
+        h2PoolSize = h2Node.node("pool-size").getInt(previous.h2PoolSize);
+        h2StatementCacheSize = h2Node.node("statement-cache-size").getInt(previous.h2StatementCacheSize);
+
+        ConfigurationNode hashingNode = root.node("hashing");
+        hashAlgorithm = hashingNode.node("algorithm").getString(previous.hashAlgorithm);
+        pbkdf2Iterations = hashingNode.node("pbkdf2", "iterations").getInt(previous.pbkdf2Iterations);
+        bcryptCost = hashingNode.node("bcrypt", "cost").getInt(previous.bcryptCost);
+        argon2MemoryKib = hashingNode.node("argon2", "memory-kib").getInt(previous.argon2MemoryKib);
+        argon2Iterations = hashingNode.node("argon2", "iterations").getInt(previous.argon2Iterations);
+        argon2Parallelism = hashingNode.node("argon2", "parallelism").getInt(previous.argon2Parallelism);
+        hashingThreads = hashingNode.node("threads").getInt(previous.hashingThreads);
+        hashingQueueSize = hashingNode.node("queue-size").getInt(previous.hashingQueueSize);
+
+        ConfigurationNode mojangNode = root.node("mojang");
+        mojangApiUrl = mojangNode.node("api-url").getString(previous.mojangApiUrl);
+        mojangPositiveTtl = mojangNode.node("positive-ttl").getLong(previous.mojangPositiveTtl);
+        mojangNegativeTtl = mojangNode.node("negative-ttl").getLong(previous.mojangNegativeTtl);
+        mojangMaxStale = mojangNode.node("max-stale").getLong(previous.mojangMaxStale);
+        mojangCacheSize = mojangNode.node("cache-size").getInt(previous.mojangCacheSize);
+        mojangTimeout = mojangNode.node("timeout").getInt(previous.mojangTimeout);
+        mojangThreads = mojangNode.node("threads").getInt(previous.mojangThreads);
+        mojangBatchWindow = mojangNode.node("batch-window").getLong(previous.mojangBatchWindow);
+        mojangBatchSize = mojangNode.node("batch-size").getInt(previous.mojangBatchSize);
+
+        ConfigurationNode rateLimitNode = root.node("rate-limit");
+        rateLimitWindow = rateLimitNode.node("window").getLong(previous.rateLimitWindow);
+        rateLimitAccount = rateLimitNode.node("per-account").getInt(previous.rateLimitAccount);
+        rateLimitIp = rateLimitNode.node("per-ip").getInt(previous.rateLimitIp);
+        rateLimitSubnet = rateLimitNode.node("per-subnet").getInt(previous.rateLimitSubnet);
+        rateLimitCapacity = rateLimitNode.node("capacity").getInt(previous.rateLimitCapacity);
+
+        ConfigurationNode admissionNode = root.node("admission");
+        admissionJoinsPerSecond = admissionNode.node("joins-per-second").getInt(previous.admissionJoinsPerSecond);
+        admissionBurst = admissionNode.node("burst").getInt(previous.admissionBurst);
+        admissionMaxPerIp = admissionNode.node("max-per-ip").getInt(previous.admissionMaxPerIp);
+
+        ConfigurationNode routingNode = root.node("routing");
+        lobbyServers = readStringList(routingNode.node("lobby"), previous.lobbyServers);
+        destinationServers = readStringList(routingNode.node("destination"), previous.destinationServers);
+        routingRefreshInterval = routingNode.node("refresh-interval").getLong(previous.routingRefreshInterval);
+
+        ConfigurationNode dispatchNode = root.node("dispatch");
+        dispatchMaxInFlight = dispatchNode.node("max-in-flight").getInt(previous.dispatchMaxInFlight);
+        dispatchMaxRetries = dispatchNode.node("max-retries").getInt(previous.dispatchMaxRetries);
+        dispatchRetryDelay = dispatchNode.node("retry-delay").getLong(previous.dispatchRetryDelay);
+
+        ConfigurationNode sessionNode = root.node("session");
+        sessionType = sessionNode.node("type").getString(previous.sessionType);
+        sessionTtl = sessionNode.node("ttl").getLong(previous.sessionTtl);
+        sessionBindIp = sessionNode.node("bind-ip").getBoolean(previous.sessionBindIp);
+        sessionNearCacheTtl = sessionNode.node("near-cache-ttl").getLong(previous.sessionNearCacheTtl);
+        ConfigurationNode redisNode = sessionNode.node("redis");
+        redisHost = redisNode.node("host").getString(previous.redisHost);
+        redisPort = redisNode.node("port").getInt(previous.redisPort);
+        redisPassword = redisNode.node("password").getString(previous.redisPassword);
+        redisDatabase = redisNode.node("database").getInt(previous.redisDatabase);
+        redisKeyPrefix = redisNode.node("key-prefix").getString(previous.redisKeyPrefix);
+        redisTimeout = redisNode.node("timeout").getInt(previous.redisTimeout);
+        redisPoolSize = redisNode.node("pool-size").getInt(previous.redisPoolSize);
+
+        ConfigurationNode loginTimeoutNode = root.node("login-timeout");
+        loginDeadline = loginTimeoutNode.node("deadline").getLong(previous.loginDeadline);
+        loginReminderInterval = loginTimeoutNode.node("reminder-interval").getLong(previous.loginReminderInterval);
+
+        ConfigurationNode metricsNode = root.node("metrics");
+        metricsBind = metricsNode.node("bind").getString(previous.metricsBind);
+        metricsPort = metricsNode.node("port").getInt(previous.metricsPort);
+
+        ConfigurationNode auditNode = root.node("audit");
+        auditEnabled = auditNode.node("enabled").getBoolean(previous.auditEnabled);
+        auditBufferSize = auditNode.node("buffer-size").getInt(previous.auditBufferSize);
+        auditFlushInterval = auditNode.node("flush-interval").getLong(previous.auditFlushInterval);
+        auditMaxFileSize = auditNode.node("max-file-size").getLong(previous.auditMaxFileSize);
+        auditMaxFiles = auditNode.node("max-files").getInt(previous.auditMaxFiles);
+
+        ConfigurationNode limboNode = root.node("limbo");
+        limboEnabled = limboNode.node("enabled").getBoolean(previous.limboEnabled);
+    }
+
+    public static AuthConfig defaults() {
+        return new AuthConfig();
+    }
+
+    /**
+     * 从已经加载的配置树生成新快照，缺少的项沿用 previous 的值。
+     */
+    public static AuthConfig parse(ConfigurationNode root, AuthConfig previous) {
+        return new AuthConfig(root, previous);
+    }
+
+    /**
+     * 列出与 previous 相比发生了变化、但只有重启后才会生效的配置项。
+     */
+    public List<String> restartRequiredChanges(AuthConfig previous) {
+        List<String> changed = new ArrayList<>();
+        if (!storageType.equals(previous.storageType) || storageBatchSize != previous.storageBatchSize
+                || storageCompactThreshold != previous.storageCompactThreshold || !h2Url.equals(previous.h2Url)
+                || h2PoolSize != previous.h2PoolSize || h2StatementCacheSize != previous.h2StatementCacheSize) {
+            changed.add("storage");
+        }
+        if (workerThreads != previous.workerThreads || workerQueueSize != previous.workerQueueSize) {
+            changed.add("async");
+        }
+        if (hashingThreads != previous.hashingThreads || hashingQueueSize != previous.hashingQueueSize) {
+            changed.add("hashing.threads/queue-size");
+        }
+        if (mojangThreads != previous.mojangThreads) {
+            changed.add("mojang.threads");
+        }
+        if (!sessionType.equals(previous.sessionType) || sessionNearCacheTtl != previous.sessionNearCacheTtl
+                || !redisHost.equals(previous.redisHost) || redisPort != previous.redisPort
+                || !Objects.equals(redisPassword, previous.redisPassword) || redisDatabase != previous.redisDatabase
+                || !redisKeyPrefix.equals(previous.redisKeyPrefix) || redisTimeout != previous.redisTimeout
+                || redisPoolSize != previous.redisPoolSize) {
+            changed.add("session.type/redis");
+        }
+        if (!metricsBind.equals(previous.metricsBind) || metricsPort != previous.metricsPort) {
+            changed.add("metrics");
+        }
+        if (auditEnabled != previous.auditEnabled || auditBufferSize != previous.auditBufferSize
+                || auditFlushInterval != previous.auditFlushInterval || auditMaxFileSize != previous.auditMaxFileSize
+                || auditMaxFiles != previous.auditMaxFiles) {
+            changed.add("audit");
+        }
+        if (limboEnabled != previous.limboEnabled) {
+            changed.add("limbo");
+        }
+        return changed;
+    }
+
+    static List<String> readStringList(ConfigurationNode node, List<String> defaults) {
+        if (node.virtual()) {
+            return defaults;
+        }
+        List<String> values = new ArrayList<>();
+        for (ConfigurationNode child : node.childrenList()) {
+            String value = child.getString();
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    public LoginRateLimiter.Settings getRateLimitSettings() {
+        return new LoginRateLimiter.Settings(rateLimitWindow * 1000, rateLimitAccount, rateLimitIp,
+            rateLimitSubnet, rateLimitCapacity);
+    }
+
+    public MojangProfileResolver.Settings getResolverSettings() {
+        return new MojangProfileResolver.Settings(mojangApiUrl, mojangPositiveTtl * 1000, mojangNegativeTtl * 1000,
+            mojangMaxStale * 1000, mojangCacheSize, mojangTimeout, mojangThreads, mojangBatchWindow, mojangBatchSize);
+    }
+
+    public PasswordHasher createPasswordHasher(Logger logger) {
+        return PasswordHashingService.createHasher(hashAlgorithm, pbkdf2Iterations, bcryptCost,
+            argon2MemoryKib, argon2Iterations, argon2Parallelism, logger);
+    }
+
+    public OfflineWhitelist getOfflineWhitelist() {
+        return offlineWhitelist;
+    }
+
+    OfflineWhitelist.Update getWhitelistUpdate() {
+        return whitelistUpdate;
+    }
+
+    public String getDenyMessage() {
+        return denyMessage;
+    }
+
+    public MessageCatalog getMessages() {
+        return messages;
+    }
+
+    public CommandGate getCommandGate() {
+        return commandGate;
+    }
+
+    public String getStorageType() {
+        return storageType;
+    }
+
+    public int getStorageBatchSize() {
+        return storageBatchSize;
+    }
+
+    public int getStorageCompactThreshold() {
+        return storageCompactThreshold;
+    }
+
+    public String getH2Url() {
+        return h2Url;
+    }
+
+    public int getH2PoolSize() {
+        return h2PoolSize;
+    }
+
+    public int getH2StatementCacheSize() {
+        return h2StatementCacheSize;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getWorkerQueueSize() {
+        return workerQueueSize;
+    }
+
+    public int getHashingThreads() {
+        return hashingThreads;
+    }
+
+    public int getHashingQueueSize() {
+        return hashingQueueSize;
+    }
+
+    public int getAdmissionJoinsPerSecond() {
+        return admissionJoinsPerSecond;
+    }
+
+    public int getAdmissionBurst() {
+        return admissionBurst;
+    }
+
+    public int getAdmissionMaxPerIp() {
+        return admissionMaxPerIp;
+    }
+
+    public List<String> getLobbyServers() {
+        return lobbyServers;
+    }
+
+    public List<String> getDestinationServers() {
+        return destinationServers;
+    }
+
+    public long getRoutingRefreshInterval() {
+        return routingRefreshInterval;
+    }
+
+    public int getDispatchMaxInFlight() {
+        return dispatchMaxInFlight;
+    }
+
+    public int getDispatchMaxRetries() {
+        return dispatchMaxRetries;
+    }
+
+    public long getDispatchRetryDelay() {
+        return dispatchRetryDelay;
+    }
+
+    public String getSessionType() {
+        return sessionType;
+    }
+
+    public long getSessionTtl() {
+        return sessionTtl;
+    }
+
+    public boolean isSessionBindIp() {
+        return sessionBindIp;
+    }
+
+    public long getSessionNearCacheTtl() {
+        return sessionNearCacheTtl;
+    }
+
+    public String getRedisHost() {
+        return redisHost;
+    }
+
+    public int getRedisPort() {
+        return redisPort;
+    }
+
+    public String getRedisPassword() {
+        return redisPassword;
+    }
+
+    public int getRedisDatabase() {
+        return redisDatabase;
+    }
+
+    public String getRedisKeyPrefix() {
+        return redisKeyPrefix;
+    }
+
+    public int getRedisTimeout() {
+        return redisTimeout;
+    }
+
+    public int getRedisPoolSize() {
+        return redisPoolSize;
+    }
+
+    public long getLoginDeadline() {
+        return loginDeadline;
+    }
+
+    public long getLoginReminderInterval() {
+        return loginReminderInterval;
+    }
+
+    public String getMetricsBind() {
+        return metricsBind;
+    }
+
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public boolean isAuditEnabled() {
+        return auditEnabled;
+    }
+
+    public int getAuditBufferSize() {
+        return auditBufferSize;
+    }
+
+    public long getAuditFlushInterval() {
+        return auditFlushInterval;
+    }
+
+    // 单个审计日志文件的大小上限（字节）
+    public long getAuditMaxFileBytes() {
+        return auditMaxFileSize * 1024 * 1024;
+    }
+
+    public int getAuditMaxFiles() {
+        return auditMaxFiles;
+    }
+
+    public boolean isLimboEnabled() {
+        return limboEnabled;
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.elytrium.limboapi.api.Limbo;
+import net.elytrium.limboapi.api.LimboFactory;
+import net.elytrium.limboapi.api.LimboSessionHandler;
+import net.elytrium.limboapi.api.chunk.Dimension;
+import net.elytrium.limboapi.api.command.LimboCommandMeta;
+import net.elytrium.limboapi.api.event.LoginLimboRegisterEvent;
+import net.elytrium.limboapi.api.player.GameMode;
+import net.elytrium.limboapi.api.player.LimboPlayer;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 可选的代理内登录等待区，需要安装 LimboAPI 插件。未登录的离线玩家在登录阶段留在代理内的虚空世界里，
+ * 不连接任何后端，只处理聊天和 /login、/register；登录或注册成功后离开等待区，
+ * LimboAPI 继续登录流程，再由 onChooseInitialServer 直接连接目标服。
+ *
+ * LimboAPI 在触发 LoginEvent 之前执行等待区回调，所以账户预加载和会话恢复在这里完成，
+ * AuthListener.onLogin 不再处理离线玩家。只有 LimboAPI 已加载时才会加载这个类。
+ */
+public class AuthLimbo {
+    public static final String LIMBO_PLUGIN_ID = "limboapi";
+
+    private final AuthPlugin plugin;
+    private final AuthManager authManager;
+    private final LimboFactory factory;
+    private final AtomicInteger held = new AtomicInteger();
+    private volatile Limbo limbo;
+
+    public AuthLimbo(AuthPlugin plugin, LimboFactory factory) {
+        this.plugin = plugin;
+        this.authManager = plugin.getAuthManager();
+        this.factory = factory;
+        authManager.getMetrics().registerGauge("auth_limbo_players",
+            "Unauthenticated players held in the proxy-side limbo", null, held::get);
+    }
+
+    /**
+     * 取得 LimboAPI 的工厂并创建等待区，LimboAPI 未安装或不可用时返回 null。
+     */
+    public static AuthLimbo create(AuthPlugin plugin, ProxyServer server) {
+        Object instance = server.getPluginManager().getPlugin(LIMBO_PLUGIN_ID)
+            .flatMap(PluginContainer::getInstance).orElse(null);
+        if (!(instance instanceof LimboFactory)) {
+            plugin.getLogger().warn("已开启 limbo，但没有找到可用的 LimboAPI，未登录玩家仍然连接登录服");
+            return null;
+        }
+        return new AuthLimbo(plugin, (LimboFactory) instance);
+    }
+
+    // LimboAPI 在自己的初始化事件中准备好数据包映射后才能创建虚拟世界
+    @Subscribe
+    public void onProxyInitialize(ProxyInitializeEvent event) {
+        try {
+            limbo = factory.createLimbo(factory.createVirtualWorld(Dimension.THE_END, 0, 64, 0, 0, 0))
+                .setName("auth-plugin")
+                .setWorldTime(6000)
+                .setGameMode(GameMode.ADVENTURE)
+                .registerCommand(new LimboCommandMeta(Collections.singletonList("login")))
+                .registerCommand(new LimboCommandMeta(Collections.singletonList("register")));
+            plugin.getLogger().info("已创建登录等待区，未登录玩家不再连接登录服");
+        } catch (RuntimeException e) {
+            plugin.getLogger().error("无法创建登录等待区，未登录玩家仍然连接登录服", e);
+        }
+    }
+
+    public boolean isActive() {
+        return limbo != null;
+    }
+
+    public int getHeldCount() {
+        return held.get();
+    }
+
+    @Subscribe
+    public void onLoginLimboRegister(LoginLimboRegisterEvent event) {
+        Player player = event.getPlayer();
+        if (limbo == null || player.isOnlineMode()) {
+            return;
+        }
+        event.addOnJoinCallback(() -> hold(player));
+    }
+
+    /**
+     * 预加载账户并查找登录会话：恢复了会话的玩家直接跳过等待区，其余玩家进入等待区。
+     */
+    void hold(Player player) {
+        authManager.loadPlayer(player).thenCompose(ignored -> authManager.restoreSession(player))
+            .whenComplete((restored, error) -> {
+                if (error != null) {
+                    plugin.getLogger().error("无法加载玩家 " + player.getUsername() + " 的账户信息", error);
+                    authManager.audit(AuditLog.Event.DENY, player, "account-load-failed");
+                    player.disconnect(authManager.getMessages().get(Message.ACCOUNT_LOAD_FAILED,
+                        player.getEffectiveLocale()));
+                    return;
+                }
+                if (restored) {
+                    authManager.getMessages().send(player, Message.SESSION_RESTORED, player.getUsername());
+                    factory.passLoginLimbo(player);
+                    return;
+                }
+                limbo.spawnPlayer(player, new Handler(player));
+            });
+    }
+
+    // 每个等待区中的玩家一个，LimboAPI 在玩家的网络线程上回调
+    private final class Handler implements LimboSessionHandler {
+        private final Player player;
+
+        private Handler(Player player) {
+            this.player = player;
+        }
+
+        @Override
+        public void onSpawn(Limbo server, LimboPlayer limboPlayer) {
+            held.incrementAndGet();
+            // 登录成功后在玩家的网络线程上离开等待区，LimboAPI 随后继续登录流程
+            authManager.holdInLimbo(player, () -> limboPlayer.getScheduledExecutor().execute(limboPlayer::disconnect));
+            MessageCatalog messages = authManager.getMessages();
+            messages.send(player, Message.LOGIN_PROMPT);
+            messages.send(player, Message.REGISTER_HINT);
+            authManager.startLoginTimeout(player);
+            authManager.handlePlayerJoin(player);
+        }
+
+        @Override
+        public void onChat(String chat) {
+            if (!chat.startsWith("/")) {
+                authManager.getMetrics().getChatBlocked().increment();
+                authManager.getMessages().send(player, Message.CHAT_NEEDS_LOGIN);
+                return;
+            }
+            String[] args = chat.substring(1).trim().split(" +");
+            String command = args[0].toLowerCase(Locale.ROOT);
+            if (command.equals("login")) {
+                if (args.length != 2) {
+                    authManager.getMessages().send(player, Message.LOGIN_USAGE);
+                } else if (!authManager.isAuthenticated(player)) {
+                    authManager.authenticate(player, args[1]);
+                }
+            } else if (command.equals("register")) {
+                if (args.length != 2) {
+                    authManager.getMessages().send(player, Message.REGISTER_USAGE);
+                } else {
+                    authManager.register(player, args[1]);
+                }
+            } else {
+                authManager.getMetrics().getCommandsBlocked().increment();
+                authManager.getMessages().send(player, authManager.isRegistered(player)
+                    ? Message.COMMAND_NEEDS_LOGIN : Message.COMMAND_NEEDS_REGISTER);
+            }
+        }
+
+        // 登录成功离开等待区时会话保留；断线或被踢出时清除
+        @Override
+        public void onDisconnect() {
+            held.decrementAndGet();
+            if (!authManager.isAuthenticated(player)) {
+                authManager.removePlayer(player);
+            }
+        }
+    }
+}
@@ -1,23 +1,30 @@
 package com.example.authplugin;
 
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
+import com.velocitypowered.api.event.ResultedEvent;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.command.CommandExecuteEvent;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.LoginEvent;
 import com.velocitypowered.api.event.connection.PreLoginEvent;
 import com.velocitypowered.api.event.player.PlayerChatEvent;
+import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
 import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
-import net.kyori.adventure.text.Component;
 
-import java.util.Optional;
+import java.net.InetAddress;
 import java.util.concurrent.TimeUnit;
 
 public class AuthListener {
+    private static final PreLoginEvent.PreLoginComponentResult OFFLINE_MODE =
+        PreLoginEvent.PreLoginComponentResult.forceOfflineMode();
+
     private final AuthPlugin plugin;
     private final AuthManager authManager;
+    // 拒绝结果按消息目录提前创建，洪水攻击时拒绝连接不需要分配新对象；重载后第一次拒绝时重建
+    private volatile DeniedResults deniedResults;
 
     public AuthListener(AuthPlugin plugin) {
         this.plugin = plugin;
@@ -26,49 +33,69 @@ public class AuthListener {
 
     @Subscribe
     public void onServerPreConnect(ServerPreConnectEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleServerPreConnect(event);
+        } finally {
+            authManager.getMetrics().getServerPreConnect().record(System.nanoTime() - start);
+        }
+    }
+
+    private void handleServerPreConnect(ServerPreConnectEvent event) {
         Player player = event.getPlayer();
         RegisteredServer targetServer = event.getResult().getServer().orElse(null);
+        ServerRouter router = authManager.getServerRouter();
         
-        if (!plugin.getAuthManager().isAuthenticated(player)) {
+        if (!authManager.isAuthenticated(player)) {
             // 如果玩家未登录，强制连接到登录服务器
-            Optional<RegisteredServer> loginServer = plugin.getServer().getServer("login");
-            if (loginServer.isPresent() && targetServer != loginServer.get()) {
-                event.setResult(ServerPreConnectEvent.ServerResult.allowed(loginServer.get()));
-                player.sendMessage(Component.text("§c请先登录后才能进入其他服务器！"));
-                player.sendMessage(Component.text("§e使用 /login <密码> 登录"));
+            if (!router.isLobby(targetServer)) {
+                RegisteredServer loginServer = router.pickLobby();
+                if (loginServer != null) {
+                    event.setResult(ServerPreConnectEvent.ServerResult.allowed(loginServer));
+                    authManager.getMessages().send(player, Message.LOGIN_REQUIRED);
+                }
             }
-        } else {
+        } else if (router.isLobby(targetServer)) {
             // 如果玩家已登录，但仍在登录服务器，则允许切换到其他服务器
-            Optional<RegisteredServer> loginServer = plugin.getServer().getServer("login");
-            if (loginServer.isPresent() && targetServer == loginServer.get()) {
-                player.sendMessage(Component.text("§a你已经登录，可以切换到其他服务器了！"));
-            }
+            authManager.getMessages().send(player, Message.CAN_SWITCH_SERVER);
         }
     }
 
     @Subscribe
     public void onDisconnect(DisconnectEvent event) {
         plugin.getAuthManager().removePlayer(event.getPlayer());
+        authManager.getAdmissionController().release(event.getPlayer().getRemoteAddress().getAddress());
     }
 
     @Subscribe
     public void onCommand(CommandExecuteEvent event) {
+        long start = System.nanoTime();
+        try {
+            handleCommand(event);
+        } finally {
+            authManager.getMetrics().getCommand().record(System.nanoTime() - start);
+        }
+    }
+
+    private void handleCommand(CommandExecuteEvent event) {
         if (!(event.getCommandSource() instanceof Player)) {
             return;
         }
 
+        // 已登录玩家直接放行，这条路径不分配对象
         Player player = (Player) event.getCommandSource();
-        String command = event.getCommand().toLowerCase();
+        if (authManager.isAuthenticated(player)) {
+            return;
+        }
 
-        // 如果玩家未登录且不是login或register命令，则取消命令执行
-        if (!plugin.getAuthManager().isAuthenticated(player) && 
-            !command.startsWith("login") && 
-            !command.startsWith("register")) {
+        // 未登录时只允许白名单中的命令（默认是 login 和 register）
+        if (!authManager.getCommandGate().isAllowed(event.getCommand())) {
             event.setResult(CommandExecuteEvent.CommandResult.denied());
-            if (plugin.getAuthManager().isRegistered(player)) {
-                player.sendMessage(Component.text("§c请先使用 /login <密码> 登录！"));
+            authManager.getMetrics().getCommandsBlocked().increment();
+            if (authManager.isRegistered(player)) {
+                authManager.getMessages().send(player, Message.COMMAND_NEEDS_LOGIN);
             } else {
-                player.sendMessage(Component.text("§c请先使用 /register <密码> 注册！"));
+                authManager.getMessages().send(player, Message.COMMAND_NEEDS_REGISTER);
             }
         }
     }
@@ -76,43 +103,117 @@ public class AuthListener {
     @Subscribe
     public void onPlayerChat(PlayerChatEvent event) {
         Player player = event.getPlayer();
-        if (!plugin.getAuthManager().isAuthenticated(player)) {
+        if (!authManager.isAuthenticated(player)) {
             event.setResult(PlayerChatEvent.ChatResult.denied());
-            player.sendMessage(Component.text("§c请先登录后再聊天！"));
+            authManager.getMetrics().getChatBlocked().increment();
+            authManager.getMessages().send(player, Message.CHAT_NEEDS_LOGIN);
         }
     }
 
     @Subscribe(order = PostOrder.FIRST)
     public void onPreLogin(PreLoginEvent event) {
+        // 先做准入控制，超出预算的连接在这里直接断开，不再进入登录流程
+        InetAddress address = event.getConnection().getRemoteAddress().getAddress();
+        switch (authManager.getAdmissionController().tryAdmit(address)) {
+            case GLOBAL_LIMIT:
+                event.setResult(deniedResults().global);
+                authManager.getAuditLog().record(AuditLog.Event.DENY, null, event.getUsername(), address,
+                    "global-limit");
+                return;
+            case IP_LIMIT:
+                event.setResult(deniedResults().perIp);
+                authManager.getAuditLog().record(AuditLog.Event.DENY, null, event.getUsername(), address, "ip-limit");
+                return;
+            default:
+                break;
+        }
         // 不要让 Velocity 直接拒绝非正版玩家
-        event.setResult(PreLoginEvent.PreLoginComponentResult.forceOfflineMode());
+        event.setResult(OFFLINE_MODE);
     }
 
     @Subscribe(order = PostOrder.FIRST)
-    public void onLogin(LoginEvent event) {
+    public EventTask onLogin(LoginEvent event) {
         Player player = event.getPlayer();
         
         // 检查是否是正版玩家
+        authManager.audit(AuditLog.Event.JOIN, player, player.isOnlineMode() ? "online" : "offline");
         if (player.isOnlineMode()) {
             // 正版玩家自动通过验证
             plugin.getAuthManager().authenticatePlayer(player.getUniqueId());
-            player.sendMessage(Component.text("§a欢迎正版玩家 " + player.getUsername()));
-            
-            // 直接传送到生存服务器
-            Optional<RegisteredServer> survivalServer = plugin.getServer().getServer("survival");
-            if (survivalServer.isPresent()) {
-                player.createConnectionRequest(survivalServer.get()).fireAndForget();
+            authManager.getMessages().send(player, Message.WELCOME_PREMIUM, player.getUsername());
+            // 初始服务器在 onChooseInitialServer 中直接选为目标服
+            return null;
+        }
+        if (plugin.isLimboActive()) {
+            // 离线玩家已经在登录等待区中完成登录或恢复会话
+            return null;
+        }
+
+        // 预加载账户信息并查找登录会话，完成前暂停登录流程但不占用事件线程
+        return EventTask.resumeWhenComplete(authManager.loadPlayer(player)
+                .thenCompose(ignored -> authManager.restoreSession(player)).handle((restored, error) -> {
+            if (error != null) {
+                plugin.getLogger().error("无法加载玩家 " + player.getUsername() + " 的账户信息", error);
+                authManager.audit(AuditLog.Event.DENY, player, "account-load-failed");
+                event.setResult(ResultedEvent.ComponentResult.denied(
+                    authManager.getMessages().get(Message.ACCOUNT_LOAD_FAILED, player.getEffectiveLocale())));
+                return null;
             }
-        } else {
-            // 非正版玩家需要登录验证
-            player.sendMessage(Component.text("§e请使用 /login <密码> 登录"));
-            player.sendMessage(Component.text("§e如果没有账号，请使用 /register <密码> 注册"));
-            
-            // 强制传送到登录服务器
-            Optional<RegisteredServer> loginServer = plugin.getServer().getServer("login");
-            if (loginServer.isPresent()) {
-                player.createConnectionRequest(loginServer.get()).fireAndForget();
+
+            // 有效期内重连，直接恢复登录状态
+            if (restored) {
+                authManager.getMessages().send(player, Message.SESSION_RESTORED, player.getUsername());
+                return null;
             }
+
+            // 非正版玩家需要登录验证
+            MessageCatalog messages = authManager.getMessages();
+            messages.send(player, Message.LOGIN_PROMPT);
+            messages.send(player, Message.REGISTER_HINT);
+            // 初始服务器在 onChooseInitialServer 中直接选为登录服务器
+            authManager.startLoginTimeout(player);
+            authManager.handlePlayerJoin(player);
+            return null;
+        }));
+    }
+
+    /**
+     * 第一次连接直接指向负载最低的服务器：未登录玩家去登录服，正版玩家和恢复了会话的玩家去目标服。
+     * 以前在 LoginEvent 里另外发起一次连接，和 Velocity 自己按 try 列表发起的初始连接同时进行，
+     * 每个玩家要在后端握手两次，初始服务器不对时还要再经过一次 ServerPreConnect 重定向。
+     * 没有可用的服务器时保留 Velocity 按 try 列表选出的服务器。
+     */
+    @Subscribe
+    public void onChooseInitialServer(PlayerChooseInitialServerEvent event) {
+        ServerRouter router = authManager.getServerRouter();
+        RegisteredServer initial = authManager.isAuthenticated(event.getPlayer())
+            ? router.pickDestination()
+            : router.pickLobby();
+        if (initial != null) {
+            event.setInitialServer(initial);
+        }
+    }
+
+    private DeniedResults deniedResults() {
+        MessageCatalog messages = authManager.getMessages();
+        DeniedResults results = deniedResults;
+        if (results == null || results.messages != messages) {
+            results = new DeniedResults(messages);
+            deniedResults = results;
+        }
+        return results;
+    }
+
+    // 连接还没有语言信息，拒绝消息使用默认语言
+    private static final class DeniedResults {
+        private final MessageCatalog messages;
+        private final PreLoginEvent.PreLoginComponentResult global;
+        private final PreLoginEvent.PreLoginComponentResult perIp;
+
+        private DeniedResults(MessageCatalog messages) {
+            this.messages = messages;
+            this.global = PreLoginEvent.PreLoginComponentResult.denied(messages.get(Message.CONNECTION_THROTTLED));
+            this.perIp = PreLoginEvent.PreLoginComponentResult.denied(messages.get(Message.TOO_MANY_CONNECTIONS));
         }
     }
-} 
\ No newline at end of file
+}
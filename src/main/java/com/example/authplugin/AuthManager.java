@@ -5,31 +5,57 @@ import com.velocitypowered.api.proxy.Player;
 import com.velocitypowered.api.proxy.ProxyServer;
 import com.velocitypowered.api.proxy.server.RegisteredServer;
 import net.kyori.adventure.text.Component;
-import org.spongepowered.configurate.ConfigurationNode;
 import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
 import org.slf4j.Logger;
 
 import java.io.*;
+import java.net.InetAddress;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
-import java.net.HttpURLConnection;
-import java.net.URL;
 
 public class AuthManager {
-    private final Set<UUID> authenticatedPlayers = new HashSet<>();
-    private final Map<UUID, String> playerPasswords = new HashMap<>();
+    // 过期的限流计数和本地会话的清理间隔
+    private static final long PURGE_INTERVAL_SECONDS = 60;
+
+    // 在线玩家的登录状态和账户缓存
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
     private final AuthPlugin plugin;
     private final ProxyServer server;
     private final Logger logger;
+    private final File dataFolder;
     private final File passwordFile;
+    private final File legacyPasswordFile;
+    private final File passwordLogFile;
     private final File configFile;
-    private List<String> allowedOfflinePlayers;
-    private String denyMessage;
-    private final Map<UUID, Integer> loginAttempts = new HashMap<>();
-    private final Map<UUID, Long> lastLoginAttempt = new HashMap<>();
-    private static final int MAX_LOGIN_ATTEMPTS = 3;
-    private static final long LOGIN_TIMEOUT = 300000; // 5分钟
+    // 当前配置快照，重载时整体替换，读取方拿到的总是一份完整的配置
+    private volatile AuthConfig config = AuthConfig.defaults();
+    private ConfigWatcher configWatcher;
+    private CredentialStore credentialStore;
+    private final LoginRateLimiter rateLimiter;
+    private final AdmissionController admissionController;
+    private final ServerRouter serverRouter;
+    private final DispatchQueue dispatchQueue;
+    private final SessionStore sessionStore;
+    private final AuthMetrics metrics = new AuthMetrics();
+    private MetricsHttpServer metricsServer;
+    private final ExecutorService executor;
+    private PasswordHashingService hashingService;
+    private final MojangProfileResolver profileResolver;
+    private final AuditLog auditLog;
+    // 登录期限、提醒和定期清理共用一个时间轮线程，100 毫秒一格，一圈约 51 秒
+    private final TimingWheel timer;
 
     @Inject
     public AuthManager(AuthPlugin plugin, ProxyServer server, Logger logger) {
@@ -37,49 +63,170 @@ public class AuthManager {
         this.server = server;
         this.logger = logger;
         
-        this.passwordFile = new File("plugins/auth-plugin/passwords.txt");
-        this.configFile = new File("plugins/auth-plugin/config.yml");
-        this.allowedOfflinePlayers = new ArrayList<>();
-        this.denyMessage = "§c对不起，该用户不允许离线登录！请联系管理员";
-        loadConfig();
-        loadPasswords();
+        // 数据目录由 Velocity 提供，默认就是 plugins/auth-plugin
+        this.dataFolder = plugin.getDataDirectory().toFile();
+        this.passwordFile = new File(dataFolder, "passwords.dat");
+        // 旧版文本格式，启动时自动转换为 passwords.dat
+        this.legacyPasswordFile = new File(dataFolder, "passwords.txt");
+        this.passwordLogFile = new File(dataFolder, "passwords.log");
+        this.configFile = new File(dataFolder, "config.yml");
+        AuthConfig initial = loadConfig();
+        this.auditLog = new AuditLog(new File(dataFolder, "audit"), logger, initial.isAuditEnabled(),
+            initial.getAuditBufferSize(), initial.getAuditFlushInterval(), initial.getAuditMaxFileBytes(),
+            initial.getAuditMaxFiles());
+        auditLog.open();
+        this.timer = new TimingWheel("auth-plugin-timer", 100, 512, logger);
+        this.rateLimiter = new LoginRateLimiter(initial.getRateLimitSettings());
+        this.admissionController = new AdmissionController(server, logger, initial.getAdmissionJoinsPerSecond(),
+            initial.getAdmissionBurst(), initial.getAdmissionMaxPerIp());
+        this.serverRouter = new ServerRouter(server, logger);
+        serverRouter.configure(initial.getLobbyServers(), initial.getDestinationServers(),
+            initial.getRoutingRefreshInterval());
+        this.dispatchQueue = new DispatchQueue(serverRouter, logger, this::getMessages,
+            initial.getDispatchMaxInFlight(), initial.getDispatchMaxRetries(), initial.getDispatchRetryDelay());
+        this.sessionStore = createSessionStore(initial);
+        this.executor = createExecutor(initial);
+        this.hashingService = new PasswordHashingService(initial.createPasswordHasher(logger), initial.getHashingThreads(),
+            initial.getHashingQueueSize());
+        this.profileResolver = new MojangProfileResolver(logger, initial.getResolverSettings(),
+            new PremiumStatusStore(new File(dataFolder, "premium-cache.dat"), logger));
+        loadPasswords(initial);
+        registerMetrics(initial);
+        timer.schedule(this::purgeExpired, PURGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        watchConfig();
     }
 
-    private void loadConfig() {
+    // 配置文件保存后自动重载，监听失败时仍然可以使用 /authreload
+    private void watchConfig() {
         try {
-            // 确保目录存在
-            configFile.getParentFile().mkdirs();
-            
-            // 如果配置文件不存在，从资源中复制
-            if (!configFile.exists()) {
-                try (InputStream in = plugin.getClass().getResourceAsStream("/config.yml")) {
-                    Files.copy(in, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                }
-            }
+            configWatcher = new ConfigWatcher(configFile.toPath(), 500, this::reloadConfig, logger);
+        } catch (IOException e) {
+            logger.warn("无法监听配置文件变化，修改配置后请使用 /authreload: " + e.getMessage());
+        }
+    }
 
-            // 加载配置
-            YamlConfigurationLoader loader = YamlConfigurationLoader.builder()
-                .file(configFile)
-                .build();
-            
-            ConfigurationNode root = loader.load();
-            
-            List<String> players = new ArrayList<>();
-            ConfigurationNode playersNode = root.node("allowed-offline-players");
-            if (!playersNode.virtual()) {
-                for (ConfigurationNode node : playersNode.childrenList()) {
-                    String player = node.getString();
-                    if (player != null) {
-                        players.add(player);
-                    }
-                }
+    private void registerMetrics(AuthConfig config) {
+        metrics.registerGauge("auth_sessions", "Online players tracked by the plugin", null, sessions::size);
+        metrics.registerGauge("auth_hash_queue_depth", "Password hashing tasks waiting for a thread", null,
+            hashingService::getQueueDepth);
+        metrics.registerGauge("auth_mojang_cache_entries", "Cached premium lookups", null,
+            profileResolver::getCacheSize);
+        metrics.registerCounter("auth_mojang_batches_total", "Bulk requests sent to Mojang", null,
+            profileResolver.getBatcher()::getBatchCount);
+        metrics.registerCounter("auth_mojang_batched_names_total", "Usernames sent in bulk requests", null,
+            profileResolver.getBatcher()::getBatchedNameCount);
+        metrics.registerHistogram("auth_mojang_lookup_seconds", "Premium lookup latency from enqueue to result",
+            null, profileResolver.getBatcher().getLatency());
+        metrics.registerHistogram("auth_mojang_request_seconds", "Mojang bulk request latency", null,
+            profileResolver.getRequestLatency());
+        for (LoginRateLimiter.Scope scope : LoginRateLimiter.Scope.values()) {
+            metrics.registerGauge("auth_rate_limit_tracked", "Keys tracked by the login rate limiter",
+                "scope=\"" + scope.name().toLowerCase(Locale.ROOT) + "\"",
+                () -> rateLimiter.getTrackedCount(scope, System.currentTimeMillis()));
+        }
+        metrics.registerCounter("auth_admission_total", "PreLogin admission decisions", "result=\"accepted\"",
+            admissionController::getAcceptedCount);
+        metrics.registerCounter("auth_admission_total", "PreLogin admission decisions",
+            "result=\"rejected_global\"", admissionController::getRejectedGlobalCount);
+        metrics.registerCounter("auth_admission_total", "PreLogin admission decisions",
+            "result=\"rejected_ip\"", admissionController::getRejectedPerIpCount);
+        metrics.registerGauge("auth_admission_tracked_addresses", "Addresses with open connections", null,
+            admissionController::getTrackedAddresses);
+        metrics.registerGauge("auth_dispatch_queue_length", "Players waiting for a transfer", null,
+            dispatchQueue::getQueueLength);
+        metrics.registerGauge("auth_dispatch_in_flight", "Transfers in progress", null, dispatchQueue::getInFlight);
+        metrics.registerCounter("auth_audit_events_total", "Audit events written or dropped", "result=\"written\"",
+            auditLog::getWrittenCount);
+        metrics.registerCounter("auth_audit_events_total", "Audit events written or dropped", "result=\"dropped\"",
+            auditLog::getDroppedCount);
+        metrics.registerGauge("auth_audit_pending", "Audit events waiting in the ring buffer", null,
+            auditLog::getPending);
+        metrics.registerGauge("auth_timer_pending", "Login deadlines, reminders and purges scheduled", null,
+            timer::getPending);
+
+        if (config.getMetricsPort() > 0) {
+            try {
+                metricsServer = new MetricsHttpServer(config.getMetricsBind(), config.getMetricsPort(), metrics, logger);
+            } catch (IOException e) {
+                logger.warn("无法在 " + config.getMetricsBind() + ":" + config.getMetricsPort() + " 上启动监控端口: "
+                    + e.getMessage());
             }
-            allowedOfflinePlayers = players;
-            
-            denyMessage = root.node("deny-message").getString(denyMessage);
+        }
+    }
+
+    private ExecutorService createExecutor(AuthConfig config) {
+        // 有界线程池：存储和密码校验都在这里执行，不占用 Velocity 的网络和命令线程
+        AtomicInteger threadId = new AtomicInteger();
+        int threads = config.getWorkerThreads();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(config.getWorkerQueueSize()), runnable -> {
+                Thread thread = new Thread(runnable, "auth-plugin-worker-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private SessionStore createSessionStore(AuthConfig config) {
+        if ("redis".equalsIgnoreCase(config.getSessionType())) {
+            logger.info("会话存储: redis " + config.getRedisHost() + ":" + config.getRedisPort());
+            SessionStore redis = new RedisSessionStore(config.getRedisHost(), config.getRedisPort(),
+                config.getRedisPassword(), config.getRedisDatabase(), config.getRedisKeyPrefix(),
+                config.getRedisTimeout(), config.getRedisPoolSize(), logger);
+            return new CachingSessionStore(redis, config.getSessionNearCacheTtl() * 1000, 10000);
+        }
+        return new LocalSessionStore();
+    }
+
+    // 第一次加载，失败时使用默认配置
+    private AuthConfig loadConfig() {
+        AuthConfig initial = config;
+        try {
+            initial = readConfig(initial);
+            logWhitelistChanges(initial.getWhitelistUpdate());
         } catch (Exception e) {
             logger.error("无法加载配置文件", e);
         }
+        config = initial;
+        return initial;
+    }
+
+    // 读取配置文件并生成新快照，不修改当前配置
+    private AuthConfig readConfig(AuthConfig previous) throws IOException {
+        // 确保目录存在
+        configFile.getParentFile().mkdirs();
+
+        // 如果配置文件不存在，从资源中复制
+        if (!configFile.exists()) {
+            try (InputStream in = plugin.getClass().getResourceAsStream("/config.yml")) {
+                Files.copy(in, configFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        // 加载配置
+        YamlConfigurationLoader loader = YamlConfigurationLoader.builder()
+            .file(configFile)
+            .build();
+        return AuthConfig.parse(loader.load(), previous);
+    }
+
+    // 只记录有变化的条目，条目很多时只记录数量
+    private void logWhitelistChanges(OfflineWhitelist.Update update) {
+        int changes = update.getAdded().size() + update.getRemoved().size();
+        if (changes == 0) {
+            return;
+        }
+        if (changes <= 20) {
+            if (!update.getAdded().isEmpty()) {
+                logger.info("白名单新增: " + update.getAdded());
+            }
+            if (!update.getRemoved().isEmpty()) {
+                logger.info("白名单移除: " + update.getRemoved());
+            }
+        }
+        logger.info("白名单已更新: 新增 " + update.getAdded().size() + " 条，移除 " + update.getRemoved().size()
+            + " 条，共 " + update.getWhitelist().size() + " 条");
     }
 
     public boolean canPlayerJoin(Player player) {
@@ -90,77 +237,138 @@ public class AuthManager {
         if (velocityOnlineMode) {
             // 只允许正版玩家
             if (!player.isOnlineMode()) {
-                logger.info("玩家 " + player.getUsername() + " 尝试使用离线账户连接，但服务器要求正版验证");
+                audit(AuditLog.Event.DENY, player, "online-mode-required");
                 return false;
             }
-            logger.info("正版玩家 " + player.getUsername() + " 正在连接...");
+            audit(AuditLog.Event.JOIN, player, "online");
             return true;
         } else {
             // 如果 Velocity 设置为 online-mode=false
             // 正版玩家直接允许
             if (player.isOnlineMode()) {
-                logger.info("正版玩家 " + player.getUsername() + " 正在连接...");
+                audit(AuditLog.Event.JOIN, player, "online");
                 return true;
             }
             
             // 检查离线玩家是否在白名单中
-            boolean allowed = allowedOfflinePlayers.contains(player.getUsername());
+            boolean allowed = config.getOfflineWhitelist().contains(player.getUsername());
             if (!allowed) {
-                logger.info("离线玩家 " + player.getUsername() + " 尝试连接但不在白名单中");
+                audit(AuditLog.Event.DENY, player, "not-whitelisted");
             } else {
-                logger.info("白名单离线玩家 " + player.getUsername() + " 正在连接...");
+                audit(AuditLog.Event.JOIN, player, "whitelisted");
             }
             return allowed;
         }
     }
 
-    public String getDenyMessage() {
+    public Component getDenyMessage() {
         boolean velocityOnlineMode = this.server.getConfiguration().isOnlineMode();
-        if (velocityOnlineMode) {
-            return "§c服务器已开启正版验证，请使用正版账户进入！";
-        }
-        return denyMessage;
+        return getMessages().get(velocityOnlineMode ? Message.DENY_ONLINE_MODE : Message.DENY_OFFLINE);
     }
 
-    private void loadPasswords() {
+    private void loadPasswords(AuthConfig config) {
+        if ("h2".equalsIgnoreCase(config.getStorageType())) {
+            credentialStore = new H2CredentialStore(config.getH2Url(), logger, config.getH2PoolSize(),
+                config.getH2StatementCacheSize());
+        } else {
+            CredentialLog credentialLog = new CredentialLog(passwordFile, legacyPasswordFile, passwordLogFile, logger,
+                config.getStorageBatchSize(), config.getStorageCompactThreshold());
+            credentialStore = new FileCredentialStore(credentialLog);
+        }
+        credentialStore = new InstrumentedCredentialStore(credentialStore, metrics);
         try {
-            // 确保目录存在
-            passwordFile.getParentFile().mkdirs();
-            
-            // 如果文件不存在，创建它
-            if (!passwordFile.exists()) {
-                passwordFile.createNewFile();
-                return;
-            }
-
-            // 读取密码文件
-            try (BufferedReader reader = new BufferedReader(new FileReader(passwordFile))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(":");
-                    if (parts.length == 3) {
-                        UUID uuid = UUID.fromString(parts[0]);
-                        playerPasswords.put(uuid, parts[2]);
-                    }
-                }
-            }
+            credentialStore.open();
+            logger.info("账户存储已打开: " + config.getStorageType());
         } catch (IOException e) {
             logger.error("无法加载密码文件", e);
         }
     }
 
-    private void savePasswords() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(passwordFile))) {
-            for (Map.Entry<UUID, String> entry : playerPasswords.entrySet()) {
-                Player player = plugin.getServer().getPlayer(entry.getKey()).orElse(null);
-                if (player != null) {
-                    // 格式：UUID:玩家名:密码
-                    writer.println(entry.getKey() + ":" + player.getUsername() + ":" + entry.getValue());
-                }
+    public void shutdown() {
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
+        if (metricsServer != null) {
+            metricsServer.stop();
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("仍有登录/注册任务未完成");
             }
-        } catch (IOException e) {
-            logger.error("无法保存密码文件", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        timer.shutdown();
+        auditLog.close();
+        admissionController.shutdown();
+        serverRouter.shutdown();
+        dispatchQueue.shutdown();
+        hashingService.shutdown();
+        profileResolver.shutdown();
+        sessionStore.close();
+        credentialStore.close();
+    }
+
+    public AuthMetrics getMetrics() {
+        return metrics;
+    }
+
+    public AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    // 写入审计日志，只是把字段放进环形缓冲区，可以在事件线程上调用
+    public void audit(AuditLog.Event event, Player player, String detail) {
+        auditLog.record(event, player.getUniqueId(), player.getUsername(), player.getRemoteAddress().getAddress(),
+            detail);
+    }
+
+    public AuthConfig getConfig() {
+        return config;
+    }
+
+    public CommandGate getCommandGate() {
+        return config.getCommandGate();
+    }
+
+    // 当前配置快照中的消息目录，重载后自动换成新目录
+    public MessageCatalog getMessages() {
+        return config.getMessages();
+    }
+
+    public DispatchQueue getDispatchQueue() {
+        return dispatchQueue;
+    }
+
+    public ServerRouter getServerRouter() {
+        return serverRouter;
+    }
+
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    private PlayerSession session(UUID uuid) {
+        return sessions.computeIfAbsent(uuid, PlayerSession::new);
+    }
+
+    public CompletableFuture<Void> loadPlayer(Player player) {
+        PlayerSession session = session(player.getUniqueId());
+        return credentialStore.lookup(player.getUniqueId()).thenAccept(session::setCredential);
+    }
+
+    // 使用调用方在异步操作之前取得的会话，避免玩家断线后在这里重新创建
+    private CompletableFuture<Optional<Credential>> getCredential(Player player, PlayerSession session) {
+        Optional<Credential> credential = session.getCredential();
+        if (credential != null) {
+            return CompletableFuture.completedFuture(credential);
+        }
+        // 还没有预加载时查询一次并缓存
+        return credentialStore.lookup(player.getUniqueId()).thenApply(loaded -> {
+            session.setCredential(loaded);
+            return loaded;
+        });
     }
 
     public boolean isAuthenticated(Player player) {
@@ -169,243 +377,328 @@ public class AuthManager {
             return true;
         }
         // 非正版玩家检查是否已登录
-        return authenticatedPlayers.contains(player.getUniqueId());
+        PlayerSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isAuthenticated();
     }
 
     public boolean isRegistered(Player player) {
-        return playerPasswords.containsKey(player.getUniqueId());
+        // 只读缓存，账户信息在 LoginEvent 中已经预加载
+        PlayerSession session = sessions.get(player.getUniqueId());
+        return session != null && session.isRegistered();
+    }
+
+    // 异步操作完成时玩家可能已经断线，会话已被 removePlayer 移除，此时不能再修改登录状态
+    private boolean isLive(Player player, PlayerSession session) {
+        return sessions.get(player.getUniqueId()) == session && player.isActive();
     }
 
-    public boolean register(Player player, String password) {
+    public CompletableFuture<Boolean> register(Player player, String password) {
         if (isRegistered(player)) {
-            player.sendMessage(Component.text("§c你已经注册过了！"));
-            return false;
+            getMessages().send(player, Message.ALREADY_REGISTERED);
+            return CompletableFuture.completedFuture(false);
         }
 
         if (!isPasswordStrong(password)) {
-            player.sendMessage(Component.text("§c密码必须至少包含6个字符，包括大小写字母和数字！"));
-            return false;
-        }
-        
-        playerPasswords.put(player.getUniqueId(), password);
-        authenticatedPlayers.add(player.getUniqueId());
-        savePasswords();  // 保存到文件
-        
-        player.sendMessage(Component.text("§a注册成功！"));
-        
-        // 获取生存服务器
-        Optional<RegisteredServer> survivalServer = plugin.getServer().getServer("survival");
-        if (survivalServer.isPresent()) {
-            // 创建连接请求并送
-            player.createConnectionRequest(survivalServer.get()).fireAndForget();
-            player.sendMessage(Component.text("§a正在将你传送到生存服务器..."));
-        } else {
-            player.sendMessage(Component.text("§c错误：找不到生存服务器，请联系管理员！"));
+            getMessages().send(player, Message.WEAK_PASSWORD);
+            return CompletableFuture.completedFuture(false);
         }
-        
-        return true;
+        PlayerSession session = session(player.getUniqueId());
+
+        return AuthMetrics.time(hashingService.hash(password).thenCompose(hash -> {
+            Credential credential = new Credential(player.getUniqueId(), player.getUsername(), hash);
+            return runAsync(() -> credentialStore.insert(credential)).thenApply(inserted -> {
+                if (!inserted) {
+                    metrics.getRegisterRejected().increment();
+                    getMessages().send(player, Message.ALREADY_REGISTERED);
+                    return false;
+                }
+                metrics.getRegisterSuccess().increment();
+                audit(AuditLog.Event.REGISTER, player, null);
+                // 账户已经写入，玩家在哈希期间断线时下次连接直接登录即可
+                if (!isLive(player, session)) {
+                    return false;
+                }
+                session.setCredential(Optional.of(credential));
+                session.markAuthenticated();
+                rememberSession(player);
+
+                getMessages().send(player, Message.REGISTER_SUCCESS);
+                sendToDestination(player);
+                return true;
+            });
+        }).exceptionally(error -> handleFailure(player, error)), metrics.getRegister());
     }
 
-    public boolean authenticate(Player player, String password) {
-        UUID playerId = player.getUniqueId();
-        
-        // 检查是否在超时时间内
-        Long lastAttempt = lastLoginAttempt.get(playerId);
-        if (lastAttempt != null && System.currentTimeMillis() - lastAttempt < LOGIN_TIMEOUT) {
-            int attempts = loginAttempts.getOrDefault(playerId, 0);
-            if (attempts >= MAX_LOGIN_ATTEMPTS) {
-                player.sendMessage(Component.text("§c登录尝试次数过多，请等待5分钟后再试"));
-                return false;
+    public CompletableFuture<Boolean> authenticate(Player player, String password) {
+        PlayerSession session = session(player.getUniqueId());
+
+        return AuthMetrics.time(runAsync(() -> getCredential(player, session)).thenCompose(credential -> {
+            if (!credential.isPresent()) {
+                audit(AuditLog.Event.LOGIN_FAILURE, player, "not-registered");
+                getMessages().send(player, Message.NOT_REGISTERED);
+                return CompletableFuture.completedFuture(false);
             }
-        } else {
-            // 重置尝试次数
-            loginAttempts.remove(playerId);
-        }
 
-        if (!isRegistered(player)) {
-            player.sendMessage(Component.text("§c你还没有注册！请使用 /register <密码> 注册"));
-            return false;
-        }
+            // 按账户、IP 和网段占用一次登录机会
+            InetAddress address = player.getRemoteAddress().getAddress();
+            LoginRateLimiter.Scope limited = rateLimiter.tryAcquire(player.getUsername(), address,
+                System.currentTimeMillis());
+            if (limited != null) {
+                metrics.getLoginRateLimited().increment();
+                audit(AuditLog.Event.RATE_LIMIT, player, limited.name().toLowerCase(Locale.ROOT));
+                long minutes = Math.max(1, rateLimiter.getWindowMillis() / 60000);
+                getMessages().send(player, Message.RATE_LIMITED, minutes);
+                return CompletableFuture.completedFuture(false);
+            }
 
-        // 更新最后尝试时间
-        lastLoginAttempt.put(playerId, System.currentTimeMillis());
+            Credential stored = credential.get();
+            return hashingService.verify(password, stored.getPassword()).whenComplete((result, error) -> {
+                // 哈希线程池已满等原因导致密码没有被校验，退还这次占用的机会，不算作失败
+                if (error != null) {
+                    rateLimiter.release(player.getUsername(), address, System.currentTimeMillis());
+                }
+            }).thenApply(result -> {
+                if (!result.isMatched()) {
+                    metrics.getLoginFailure().increment();
+                    audit(AuditLog.Event.LOGIN_FAILURE, player, "wrong-password");
+                    forgetSession(player);
+                    getMessages().send(player, Message.WRONG_PASSWORD);
+                    return false;
+                }
+                metrics.getLoginSuccess().increment();
+                audit(AuditLog.Event.LOGIN_SUCCESS, player, null);
 
-        if (password.equals(playerPasswords.get(playerId))) {
-            authenticatedPlayers.add(playerId);
-            player.sendMessage(Component.text("§a登录成功！"));
-            
-            // 获取生存服务器
-            Optional<RegisteredServer> survivalServer = plugin.getServer().getServer("survival");
-            if (survivalServer.isPresent()) {
-                // 创建连接请求发送
-                player.createConnectionRequest(survivalServer.get()).fireAndForget();
-                player.sendMessage(Component.text("§a正在将你传送到生存服务器..."));
-            } else {
-                player.sendMessage(Component.text("§c错误：找不到生存服务器，请联系管理员！"));
+                rateLimiter.onSuccess(player.getUsername(), address, System.currentTimeMillis());
+                if (!isLive(player, session)) {
+                    return false;
+                }
+                session.markAuthenticated();
+                rememberSession(player);
+                if (result.needsRehash()) {
+                    upgradePassword(session, stored, password);
+                }
+                getMessages().send(player, Message.LOGIN_SUCCESS);
+                sendToDestination(player);
+                return true;
+            });
+        }).exceptionally(error -> handleFailure(player, error)), metrics.getLogin());
+    }
+
+    /**
+     * 查找玩家在有效期内的登录会话，找到且 IP 匹配时直接标记为已登录，跳过密码验证。
+     * 会话存储不可用时按未登录处理，不影响正常登录流程。
+     */
+    public CompletableFuture<Boolean> restoreSession(Player player) {
+        AuthConfig config = this.config;
+        if (config.getSessionTtl() <= 0) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // loadPlayer 创建的会话；查询期间玩家断线时它会被移除，不能再标记为已登录
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        String address = player.getRemoteAddress().getAddress().getHostAddress();
+        return sessionStore.lookup(player.getUniqueId()).handle((record, error) -> {
+            if (error != null) {
+                logger.warn("无法读取玩家 " + player.getUsername() + " 的登录会话: " + error.getMessage());
+                return false;
             }
-            
+            if (!record.isPresent() || !record.get().getUsername().equals(player.getUsername())
+                    || (config.isSessionBindIp() && !record.get().getAddress().equals(address))) {
+                return false;
+            }
+            if (!isLive(player, session)) {
+                return false;
+            }
+            session.markAuthenticated();
+            metrics.getSessionRestored().increment();
+            audit(AuditLog.Event.SESSION_RESTORE, player, null);
             return true;
+        });
+    }
+
+    // 保存登录会话，有效期从现在开始计算；断线时再保存一次，重连宽限期从断线时开始
+    private void rememberSession(Player player) {
+        long ttl = config.getSessionTtl();
+        if (ttl <= 0) {
+            return;
         }
-        
-        // 增加失败次数
-        loginAttempts.put(playerId, loginAttempts.getOrDefault(playerId, 0) + 1);
-        player.sendMessage(Component.text("§c密码错误！"));
-        return false;
+        SessionRecord record = new SessionRecord(player.getUsername(),
+            player.getRemoteAddress().getAddress().getHostAddress(), System.currentTimeMillis() + ttl * 1000);
+        sessionStore.save(player.getUniqueId(), record).exceptionally(error -> {
+            logger.warn("无法保存玩家 " + player.getUsername() + " 的登录会话: " + error.getMessage());
+            return null;
+        });
     }
 
-    public void removePlayer(Player player) {
-        authenticatedPlayers.remove(player.getUniqueId());
+    // 有人用错误的密码尝试这个账户时删除保存的会话，之后从同一 IP 进入也必须输入密码
+    private void forgetSession(Player player) {
+        if (config.getSessionTtl() <= 0) {
+            return;
+        }
+        sessionStore.delete(player.getUniqueId()).exceptionally(error -> {
+            logger.warn("无法删除玩家 " + player.getUsername() + " 的登录会话: " + error.getMessage());
+            return null;
+        });
     }
 
-    public void reloadConfig() {
-        loadConfig();
-        logger.info("配置已重载");
+    // 排队传送到目标服，每个目标服同时进行的传送数量有上限；
+    // 在登录等待区中登录的玩家离开等待区后继续登录流程，由 onChooseInitialServer 直接连接目标服
+    public void sendToDestination(Player player) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session != null && session.releaseLimbo()) {
+            return;
+        }
+        dispatchQueue.dispatch(player);
     }
 
-    public boolean shouldAuthenticate(Player player) {
-        // 如果是正版玩家，则不需要验证
-        if (player.isOnlineMode()) {
-            return false;
+    // 登录等待区中的玩家，登录成功时调用 release 让玩家离开等待区
+    public void holdInLimbo(Player player, Runnable release) {
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.setLimboRelease(release);
         }
-        // 非正版玩家需要验证
-        return !authenticatedPlayers.contains(player.getUniqueId());
     }
 
-    private boolean checkPremiumAccount(String username) {
-        try {
-            // 构建 Mojang API URL
-            URL url = new URL("https://api.mojang.com/users/profiles/minecraft/" + username);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                // 状态码 200 表示找到了这个正版账户
-                return true;
-            } else if (responseCode == 404) {
-                // 状态码 404 表示这不是正版账户
-                return false;
+    // 明文或按旧参数生成的密码在登录成功后按当前配置重新哈希
+    private void upgradePassword(PlayerSession session, Credential stored, String password) {
+        hashingService.hash(password).thenCompose(hash -> {
+            Credential upgraded = stored.withPassword(hash);
+            if (session.getCredential() != null) {
+                session.setCredential(Optional.of(upgraded));
             }
-        } catch (Exception e) {
-            logger.error("检查正版账户时发生错误", e);
-        }
-        return false;
+            return credentialStore.update(upgraded);
+        }).exceptionally(error -> {
+            logger.warn("无法升级玩家 " + stored.getUsername() + " 的密码哈希: " + error.getMessage());
+            return null;
+        });
     }
 
-    private boolean isPremiumPlayer(Player player) {
+    // 在工作线程池上执行，队列已满时返回失败的 future
+    private <T> CompletableFuture<T> runAsync(Supplier<CompletableFuture<T>> task) {
         try {
-            // 构建 Mojang API URL
-            URL url = new URL("https://api.mojang.com/users/profiles/minecraft/" + player.getUsername());
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                // 如果找到了玩家，说明这个用户名是正版账户
-                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                String response = reader.readLine();
-                
-                // 如果找到了响应，说明这是一个正版用户名
-                if (response != null && !response.isEmpty()) {
-                    // 这里我们可以选择是否要验证 UUID
-                    // 由于我们是在 offline mode 下运行，UUID 会不同，所以这里只检查用户名
-                    return true;
-                }
-            }
-        } catch (Exception e) {
-            logger.error("检查正版账户时发生错误", e);
+            return CompletableFuture.supplyAsync(task, executor).thenCompose(Function.identity());
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private boolean handleFailure(Player player, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof RejectedExecutionException) {
+            getMessages().send(player, Message.SERVER_BUSY);
+        } else {
+            logger.error("处理玩家 " + player.getUsername() + " 的请求时发生错误", cause);
+            getMessages().send(player, Message.INTERNAL_ERROR);
         }
         return false;
     }
 
-    private boolean verifyPremiumSession(Player player, String username) {
+    /**
+     * 离线玩家进入登录流程后开始计时：每隔 reminder-interval 秒提醒一次登录或注册，
+     * 超过 deadline 秒仍未登录则踢出。登录成功或断线时取消。
+     */
+    public void startLoginTimeout(Player player) {
+        AuthConfig config = this.config;
+        if (config.getLoginDeadline() <= 0 && config.getLoginReminderInterval() <= 0) {
+            return;
+        }
+        // 在 LoginEvent 的异步回调里调用，玩家已经断线时会话已被移除，不再重新创建
+        PlayerSession session = sessions.get(player.getUniqueId());
+        if (session == null) {
+            return;
+        }
+        new LoginTimeout(player, session, System.currentTimeMillis()).scheduleNext(0);
+    }
+
+    // 时间轮线程上执行，清理已经过期的限流计数和会话
+    private void purgeExpired() {
         try {
-            // 首先检查用户名是否是正版账户
-            URL checkUrl = new URL("https://api.mojang.com/users/profiles/minecraft/" + username);
-            HttpURLConnection checkConn = (HttpURLConnection) checkUrl.openConnection();
-            checkConn.setRequestMethod("GET");
-            checkConn.setConnectTimeout(5000);
-            checkConn.setReadTimeout(5000);
-
-            if (checkConn.getResponseCode() != 200) {
-                return false;
-            }
+            long now = System.currentTimeMillis();
+            rateLimiter.purgeExpired(now);
+            sessionStore.purgeExpired(now);
+        } finally {
+            timer.schedule(this::purgeExpired, PURGE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        }
+    }
 
-            // 然后验证会话
-            URL sessionUrl = new URL("https://sessionserver.mojang.com/session/minecraft/hasJoined?username=" + username);
-            HttpURLConnection sessionConn = (HttpURLConnection) sessionUrl.openConnection();
-            sessionConn.setRequestMethod("GET");
-            sessionConn.setConnectTimeout(5000);
-            sessionConn.setReadTimeout(5000);
-
-            if (sessionConn.getResponseCode() == 200) {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(sessionConn.getInputStream()));
-                String response = reader.readLine();
-                
-                // 检查响应中是否包含玩家信息
-                if (response != null && !response.isEmpty()) {
-                    // 可以进一步解析响应获取更多信息（如皮肤等）
-                    return true;
-                }
+    public void removePlayer(Player player) {
+        // 登录失败次数保存在限流器中，会话可以随断线一起清除
+        dispatchQueue.cancel(player);
+        PlayerSession session = sessions.remove(player.getUniqueId());
+        if (session != null) {
+            if (session.isAuthenticated() && !player.isOnlineMode()) {
+                rememberSession(player);
             }
+            session.logout();
+        }
+    }
+
+    /**
+     * 重新读取配置文件并替换配置快照，解析失败时保留当前配置。
+     * 由配置文件监听线程或 /authreload 调用，事件线程始终只读取已发布的快照。
+     */
+    public synchronized boolean reloadConfig() {
+        AuthConfig previous = config;
+        AuthConfig next;
+        try {
+            next = readConfig(previous);
         } catch (Exception e) {
-            logger.error("验证正版会话时发生错误", e);
+            logger.error("无法重载配置文件，继续使用当前配置", e);
+            return false;
         }
-        return false;
+        logWhitelistChanges(next.getWhitelistUpdate());
+        config = next;
+        // 算法和成本参数可以热更新，线程数需要重启生效
+        hashingService.setHasher(next.createPasswordHasher(logger));
+        rateLimiter.configure(next.getRateLimitSettings());
+        admissionController.configure(next.getAdmissionJoinsPerSecond(), next.getAdmissionBurst(),
+            next.getAdmissionMaxPerIp());
+        serverRouter.configure(next.getLobbyServers(), next.getDestinationServers(),
+            next.getRoutingRefreshInterval());
+        dispatchQueue.configure(next.getDispatchMaxInFlight(), next.getDispatchMaxRetries(),
+            next.getDispatchRetryDelay());
+        profileResolver.setSettings(next.getResolverSettings());
+        List<String> restartRequired = next.restartRequiredChanges(previous);
+        if (!restartRequired.isEmpty()) {
+            logger.warn("以下配置需要重启后才会生效: " + restartRequired);
+        }
+        logger.info("配置已重载");
+        return true;
+    }
+
+    public boolean shouldAuthenticate(Player player) {
+        // 如果是正版玩家，则不需要验证
+        if (player.isOnlineMode()) {
+            return false;
+        }
+        // 非正版玩家需要验证
+        return !isAuthenticated(player);
     }
 
+    /**
+     * 离线玩家进入登录流程后在后台查询用户名是否为正版，是正版用户名时提醒玩家。
+     * 不阻塞登录：查询经过缓存、合并和攒批，Mojang 不可用时只记录警告。
+     */
     public void handlePlayerJoin(Player player) {
-        String username = player.getUsername();
-        
-        // 异步验证会话
-        server.getScheduler().buildTask(plugin, () -> {
-            if (isPremiumPlayer(username)) {
-                // 如果是正版用户名，要求玩家证明身份
-                player.sendMessage(Component.text("§e检测到此用户名为正版账号"));
-                player.sendMessage(Component.text("§e如果这是你的账号，请使用正版客户端登录"));
-                player.sendMessage(Component.text("§e否则请更换用户名后使用离线登录"));
-                
-                // 要求玩家登录
-                if (!isRegistered(player)) {
-                    player.sendMessage(Component.text("§e请使用 /register <密码> 注册"));
-                } else {
-                    player.sendMessage(Component.text("§e请使用 /login <密码> 登录"));
-                }
-            } else {
-                // 非正版用户名，走普通注册/登录流程
-                if (!isRegistered(player)) {
-                    player.sendMessage(Component.text("§e请使用 /register <密码> 注册"));
-                } else {
-                    player.sendMessage(Component.text("§e请使用 /login <密码> 登录"));
-                }
+        profileResolver.lookup(player.getUsername()).whenComplete((premiumId, error) -> {
+            if (error != null) {
+                logger.warn("检查正版账户时发生错误: " + error.getMessage());
+            } else if (premiumId.isPresent() && player.isActive()) {
+                // 如果是正版用户名，提醒玩家使用正版客户端或更换用户名
+                getMessages().send(player, Message.PREMIUM_NAME);
             }
-        }).schedule();
+        });
     }
 
     public void authenticatePlayer(UUID uuid) {
-        authenticatedPlayers.add(uuid);
-    }
-
-    private boolean isPremiumPlayer(String username) {
-        try {
-            URL url = new URL("https://api.mojang.com/users/profiles/minecraft/" + username);
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(5000);
-            connection.setReadTimeout(5000);
-
-            return connection.getResponseCode() == 200;
-        } catch (Exception e) {
-            logger.error("检查正版账户时发生错误", e);
-            return false;
-        }
+        session(uuid).markAuthenticated();
     }
 
-    private boolean isPasswordStrong(String password) {
+    boolean isPasswordStrong(String password) {
         // 密码长度至少6位
         if (password.length() < 6) {
             return false;
@@ -431,4 +724,45 @@ public class AuthManager {
         // 必须同时包含大写字母、小写字母和数字
         return hasUpperCase && hasLowerCase && hasDigit;
     }
-} 
\ No newline at end of file
+
+    // 单个玩家的登录期限，每次执行后按当前配置安排下一次提醒或踢出
+    private final class LoginTimeout implements Runnable {
+        private final Player player;
+        private final PlayerSession session;
+        private final long joinedAt;
+
+        private LoginTimeout(Player player, PlayerSession session, long joinedAt) {
+            this.player = player;
+            this.session = session;
+            this.joinedAt = joinedAt;
+        }
+
+        @Override
+        public void run() {
+            if (session.isAuthenticated() || !player.isActive()) {
+                return;
+            }
+            long elapsed = System.currentTimeMillis() - joinedAt;
+            long deadline = config.getLoginDeadline() * 1000;
+            if (deadline > 0 && elapsed >= deadline) {
+                audit(AuditLog.Event.DENY, player, "login-timeout");
+                player.disconnect(getMessages().get(Message.LOGIN_TIMEOUT, player.getEffectiveLocale()));
+                return;
+            }
+            getMessages().send(player, session.isRegistered() ? Message.LOGIN_PROMPT : Message.REGISTER_PROMPT);
+            scheduleNext(elapsed);
+        }
+
+        private void scheduleNext(long elapsed) {
+            long deadline = config.getLoginDeadline() * 1000;
+            long reminder = config.getLoginReminderInterval() * 1000;
+            long delay = reminder > 0 ? reminder : Long.MAX_VALUE;
+            if (deadline > 0) {
+                delay = Math.min(delay, Math.max(0, deadline - elapsed));
+            }
+            if (delay != Long.MAX_VALUE) {
+                session.setLoginTimeout(timer.schedule(this, delay, TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.example.authplugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 登录流程的计数器、延迟直方图和状态量。热路径通过 getter 直接拿到计数器和直方图，
+ * 其他组件已有的统计通过 register 系列方法以函数形式接入，导出时才读取。
+ * 导出格式为 Prometheus 文本格式，/authstats 使用同一份数据生成摘要。
+ */
+public class AuthMetrics {
+    private final LongAdder loginSuccess = new LongAdder();
+    private final LongAdder loginFailure = new LongAdder();
+    private final LongAdder loginRateLimited = new LongAdder();
+    private final LongAdder registerSuccess = new LongAdder();
+    private final LongAdder registerRejected = new LongAdder();
+    private final LongAdder sessionRestored = new LongAdder();
+    private final LongAdder commandsBlocked = new LongAdder();
+    private final LongAdder chatBlocked = new LongAdder();
+
+    private final LatencyHistogram login = new LatencyHistogram();
+    private final LatencyHistogram register = new LatencyHistogram();
+    private final LatencyHistogram storageLookup = new LatencyHistogram();
+    private final LatencyHistogram storageInsert = new LatencyHistogram();
+    private final LatencyHistogram storageUpdate = new LatencyHistogram();
+    private final LatencyHistogram storageDelete = new LatencyHistogram();
+    private final LatencyHistogram serverPreConnect = new LatencyHistogram();
+    private final LatencyHistogram command = new LatencyHistogram();
+
+    private final List<Series> series = new CopyOnWriteArrayList<>();
+
+    public AuthMetrics() {
+        registerCounter("auth_login_total", "Login attempts by result", "result=\"success\"", loginSuccess::sum);
+        registerCounter("auth_login_total", "Login attempts by result", "result=\"failure\"", loginFailure::sum);
+        registerCounter("auth_login_total", "Login attempts by result", "result=\"rate_limited\"",
+            loginRateLimited::sum);
+        registerCounter("auth_register_total", "Registrations by result", "result=\"success\"", registerSuccess::sum);
+        registerCounter("auth_register_total", "Registrations by result", "result=\"rejected\"",
+            registerRejected::sum);
+        registerCounter("auth_session_restored_total", "Logins restored from a saved session", null,
+            sessionRestored::sum);
+        registerCounter("auth_blocked_total", "Commands and chat blocked before login", "type=\"command\"",
+            commandsBlocked::sum);
+        registerCounter("auth_blocked_total", "Commands and chat blocked before login", "type=\"chat\"",
+            chatBlocked::sum);
+        registerHistogram("auth_login_seconds", "Time to handle /login", null, login);
+        registerHistogram("auth_register_seconds", "Time to handle /register", null, register);
+        registerHistogram("auth_storage_seconds", "Credential store latency", "op=\"lookup\"", storageLookup);
+        registerHistogram("auth_storage_seconds", "Credential store latency", "op=\"insert\"", storageInsert);
+        registerHistogram("auth_storage_seconds", "Credential store latency", "op=\"update\"", storageUpdate);
+        registerHistogram("auth_storage_seconds", "Credential store latency", "op=\"delete\"", storageDelete);
+        registerHistogram("auth_event_seconds", "Event handler latency", "event=\"server_pre_connect\"",
+            serverPreConnect);
+        registerHistogram("auth_event_seconds", "Event handler latency", "event=\"command\"", command);
+    }
+
+    public LongAdder getLoginSuccess() {
+        return loginSuccess;
+    }
+
+    public LongAdder getLoginFailure() {
+        return loginFailure;
+    }
+
+    public LongAdder getLoginRateLimited() {
+        return loginRateLimited;
+    }
+
+    public LongAdder getRegisterSuccess() {
+        return registerSuccess;
+    }
+
+    public LongAdder getRegisterRejected() {
+        return registerRejected;
+    }
+
+    public LongAdder getSessionRestored() {
+        return sessionRestored;
+    }
+
+    public LongAdder getCommandsBlocked() {
+        return commandsBlocked;
+    }
+
+    public LongAdder getChatBlocked() {
+        return chatBlocked;
+    }
+
+    public LatencyHistogram getLogin() {
+        return login;
+    }
+
+    public LatencyHistogram getRegister() {
+        return register;
+    }
+
+    public LatencyHistogram getStorageLookup() {
+        return storageLookup;
+    }
+
+    public LatencyHistogram getStorageInsert() {
+        return storageInsert;
+    }
+
+    public LatencyHistogram getStorageUpdate() {
+        return storageUpdate;
+    }
+
+    public LatencyHistogram getStorageDelete() {
+        return storageDelete;
+    }
+
+    public LatencyHistogram getServerPreConnect() {
+        return serverPreConnect;
+    }
+
+    public LatencyHistogram getCommand() {
+        return command;
+    }
+
+    public void registerCounter(String name, String help, String labels, LongSupplier value) {
+        series.add(new Series(name, help, labels, "counter", value, null));
+    }
+
+    public void registerGauge(String name, String help, String labels, LongSupplier value) {
+        series.add(new Series(name, help, labels, "gauge", value, null));
+    }
+
+    public void registerHistogram(String name, String help, String labels, LatencyHistogram histogram) {
+        series.add(new Series(name, help, labels, "summary", null, histogram));
+    }
+
+    /**
+     * future 完成时把从现在开始经过的时间记到 histogram 中。
+     */
+    public static <T> CompletableFuture<T> time(CompletableFuture<T> future, LatencyHistogram histogram) {
+        long start = System.nanoTime();
+        future.whenComplete((result, error) -> histogram.record(System.nanoTime() - start));
+        return future;
+    }
+
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        String previous = null;
+        for (Series entry : series) {
+            if (!entry.name.equals(previous)) {
+                out.append("# HELP ").append(entry.name).append(' ').append(entry.help).append('\n');
+                out.append("# TYPE ").append(entry.name).append(' ').append(entry.type).append('\n');
+                previous = entry.name;
+            }
+            if (entry.histogram == null) {
+                appendSample(out, entry.name, entry.labels, null, Long.toString(entry.value.getAsLong()));
+                continue;
+            }
+            LatencyHistogram histogram = entry.histogram;
+            for (double quantile : new double[] {0.5, 0.9, 0.99, 0.999}) {
+                appendSample(out, entry.name, entry.labels, "quantile=\"" + quantile + "\"",
+                    seconds(histogram.quantileNanos(quantile)));
+            }
+            appendSample(out, entry.name + "_sum", entry.labels, null, seconds(histogram.getSumNanos()));
+            appendSample(out, entry.name + "_count", entry.labels, null, Long.toString(histogram.getCount()));
+        }
+        return out.toString();
+    }
+
+    // 给 /authstats 用的摘要，每行一个指标
+    public List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Series entry : series) {
+            String name = entry.labels == null ? entry.name : entry.name + "{" + entry.labels + "}";
+            if (entry.histogram == null) {
+                lines.add(name + " = " + entry.value.getAsLong());
+            } else {
+                LatencyHistogram histogram = entry.histogram;
+                lines.add(String.format(Locale.ROOT, "%s n=%d p50=%.2fms p99=%.2fms", name, histogram.getCount(),
+                    histogram.quantileNanos(0.5) / 1e6, histogram.quantileNanos(0.99) / 1e6));
+            }
+        }
+        return lines;
+    }
+
+    private static void appendSample(StringBuilder out, String name, String labels, String extra, String value) {
+        out.append(name);
+        if (labels != null || extra != null) {
+            out.append('{');
+            if (labels != null) {
+                out.append(labels);
+            }
+            if (extra != null) {
+                out.append(labels != null ? "," : "").append(extra);
+            }
+            out.append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static final class Series {
+        private final String name;
+        private final String help;
+        private final String labels;
+        private final String type;
+        private final LongSupplier value;
+        private final LatencyHistogram histogram;
+
+        private Series(String name, String help, String labels, String type, LongSupplier value,
+                       LatencyHistogram histogram) {
+            this.name = name;
+            this.help = help;
+            this.labels = labels;
+            this.type = type;
+            this.value = value;
+            this.histogram = histogram;
+        }
+    }
+}
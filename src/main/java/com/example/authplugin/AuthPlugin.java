@@ -3,6 +3,8 @@ package com.example.authplugin;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
+import com.velocitypowered.api.plugin.Dependency;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
 import com.velocitypowered.api.proxy.ProxyServer;
@@ -15,7 +17,8 @@ import java.nio.file.Path;
     name = "Auth Plugin",
     version = "1.0-SNAPSHOT",
     description = "A simple auth plugin for Velocity",
-    authors = {"XRain666"}
+    authors = {"XRain666"},
+    dependencies = {@Dependency(id = AuthLimbo.LIMBO_PLUGIN_ID, optional = true)}
 )
 public class AuthPlugin {
     private static AuthPlugin instance;
@@ -23,6 +26,7 @@ public class AuthPlugin {
     private final Logger logger;
     private final Path dataDirectory;
     private AuthManager authManager;
+    private AuthLimbo limbo;
 
     @Inject
     public AuthPlugin(ProxyServer server, Logger logger, @DataDirectory Path dataDirectory) {
@@ -35,14 +39,37 @@ public class AuthPlugin {
         server.getEventManager().register(this, new AuthListener(this));
         server.getCommandManager().register("login", new LoginCommand(authManager));
         server.getCommandManager().register("register", new RegisterCommand(authManager));
+        server.getCommandManager().register("authreload", new ReloadCommand(this));
+        server.getCommandManager().register("authstats", new AuthStatsCommand(this));
+        if (authManager.getConfig().isLimboEnabled()) {
+            // 没有安装 LimboAPI 时不加载 AuthLimbo，避免找不到 LimboAPI 的类
+            if (server.getPluginManager().isLoaded(AuthLimbo.LIMBO_PLUGIN_ID)) {
+                limbo = AuthLimbo.create(this, server);
+                if (limbo != null) {
+                    server.getEventManager().register(this, limbo);
+                }
+            } else {
+                logger.warn("已开启 limbo，但没有安装 LimboAPI 插件，未登录玩家仍然连接登录服");
+            }
+        }
         
         logger.info("Auth Plugin 已加载！");
     }
 
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        authManager.shutdown();
+    }
+
     public static AuthPlugin getInstance() {
         return instance;
     }
 
+    // 登录等待区已创建时离线玩家由 AuthLimbo 处理
+    public boolean isLimboActive() {
+        return limbo != null && limbo.isActive();
+    }
+
     public AuthManager getAuthManager() {
         return authManager;
     }
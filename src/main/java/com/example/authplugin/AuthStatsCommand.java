@@ -0,0 +1,30 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.command.SimpleCommand;
+import com.velocitypowered.api.proxy.Player;
+import net.kyori.adventure.text.Component;
+
+public class AuthStatsCommand implements SimpleCommand {
+    private final AuthPlugin plugin;
+
+    public AuthStatsCommand(AuthPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        // 只允许控制台或有权限的玩家使用
+        if (invocation.source() instanceof Player) {
+            Player player = (Player) invocation.source();
+            if (!player.hasPermission("authplugin.stats")) {
+                plugin.getAuthManager().getMessages().send(player, Message.NO_PERMISSION);
+                return;
+            }
+        }
+
+        invocation.source().sendMessage(Component.text("§e===== 登录插件统计 ====="));
+        for (String line : plugin.getAuthManager().getMetrics().summary()) {
+            invocation.source().sendMessage(Component.text("§7" + line));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.authplugin;
+
+import org.bouncycastle.crypto.generators.OpenBSDBCrypt;
+
+import java.security.SecureRandom;
+
+// 格式：$2b$成本$盐和哈希
+public class BCryptPasswordHasher implements PasswordHasher {
+    private static final String VERSION = "2b";
+
+    private final SecureRandom random = new SecureRandom();
+    private final int cost;
+
+    public BCryptPasswordHasher(int cost) {
+        // bcrypt 只接受 4 到 31
+        this.cost = Math.min(31, Math.max(4, cost));
+    }
+
+    @Override
+    public String hash(String password) {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        return OpenBSDBCrypt.generate(VERSION, password.toCharArray(), salt, cost);
+    }
+
+    @Override
+    public boolean verify(String password, String encoded) {
+        // checkPassword 内部按固定时间比较
+        return OpenBSDBCrypt.checkPassword(encoded, password.toCharArray());
+    }
+
+    @Override
+    public boolean supports(String encoded) {
+        return encoded.startsWith("$2a$") || encoded.startsWith("$2b$") || encoded.startsWith("$2y$");
+    }
+
+    @Override
+    public boolean needsRehash(String encoded) {
+        return !encoded.startsWith(String.format("$%s$%02d$", VERSION, cost));
+    }
+}
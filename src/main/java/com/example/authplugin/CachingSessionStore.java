@@ -0,0 +1,85 @@
+package com.example.authplugin;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 远程会话存储前面的近端缓存。lookup 先读本地缓存，过期或未命中时读远程存储并回填；
+ * 写入和删除同时更新缓存。其他代理节点的修改最多延迟 ttl 毫秒可见。
+ */
+public class CachingSessionStore implements SessionStore {
+    private final SessionStore delegate;
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<UUID, Entry> cache = new ConcurrentHashMap<>();
+
+    public CachingSessionStore(SessionStore delegate, long ttlMillis, int maxSize) {
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    @Override
+    public CompletableFuture<Optional<SessionRecord>> lookup(UUID uuid) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(uuid);
+        if (entry != null && now - entry.cachedAt < ttlMillis) {
+            Optional<SessionRecord> record = entry.record;
+            if (!record.isPresent() || !record.get().isExpired(now)) {
+                return CompletableFuture.completedFuture(record);
+            }
+        }
+        return delegate.lookup(uuid).thenApply(record -> {
+            remember(uuid, record);
+            return record;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> save(UUID uuid, SessionRecord record) {
+        remember(uuid, Optional.of(record));
+        return delegate.save(uuid, record);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        cache.remove(uuid);
+        return delegate.delete(uuid);
+    }
+
+    @Override
+    public void purgeExpired(long now) {
+        cache.values().removeIf(entry -> now - entry.cachedAt >= ttlMillis);
+        delegate.purgeExpired(now);
+    }
+
+    @Override
+    public void close() {
+        cache.clear();
+        delegate.close();
+    }
+
+    private void remember(UUID uuid, Optional<SessionRecord> record) {
+        long now = System.currentTimeMillis();
+        if (cache.size() >= maxSize) {
+            cache.values().removeIf(entry -> now - entry.cachedAt >= ttlMillis);
+            if (cache.size() >= maxSize) {
+                cache.clear();
+            }
+        }
+        cache.put(uuid, new Entry(record, now));
+    }
+
+    private static final class Entry {
+        private final Optional<SessionRecord> record;
+        private final long cachedAt;
+
+        private Entry(Optional<SessionRecord> record, long cachedAt) {
+            this.record = record;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.authplugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 未登录玩家可以使用的命令白名单。命令名预先转成小写并按首字母分组，
+ * 匹配时用 regionMatches 忽略大小写比较，不创建新的字符串。
+ */
+public final class CommandGate {
+    private final String[][] byFirstChar = new String[128][];
+    private final List<String> commands;
+
+    public CommandGate(List<String> commands) {
+        List<String> normalized = new ArrayList<>();
+        List<List<String>> buckets = new ArrayList<>(128);
+        for (int i = 0; i < 128; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (String command : commands) {
+            String name = command.trim().toLowerCase(Locale.ROOT);
+            if (name.startsWith("/")) {
+                name = name.substring(1);
+            }
+            if (name.isEmpty() || name.charAt(0) >= 128 || normalized.contains(name)) {
+                continue;
+            }
+            normalized.add(name);
+            buckets.get(name.charAt(0)).add(name);
+        }
+        for (int i = 0; i < 128; i++) {
+            List<String> bucket = buckets.get(i);
+            if (!bucket.isEmpty()) {
+                byFirstChar[i] = bucket.toArray(new String[0]);
+            }
+        }
+        this.commands = normalized;
+    }
+
+    /**
+     * command 是不带斜杠的完整命令行，命令名需要完全匹配，后面只能是结尾或空格。
+     */
+    public boolean isAllowed(String command) {
+        if (command.isEmpty()) {
+            return false;
+        }
+        char first = Character.toLowerCase(command.charAt(0));
+        if (first >= 128) {
+            return false;
+        }
+        String[] candidates = byFirstChar[first];
+        if (candidates == null) {
+            return false;
+        }
+        for (String candidate : candidates) {
+            int length = candidate.length();
+            if (command.regionMatches(true, 0, candidate, 0, length)
+                    && (command.length() == length || command.charAt(length) == ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getCommands() {
+        return commands;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 监听配置文件所在目录，配置文件被修改、创建或替换后调用 onChange。
+ * 编辑器保存一次文件往往会产生多个事件，最后一个事件之后安静 debounce 毫秒才触发一次。
+ * onChange 在监听线程上执行，不会占用事件线程。
+ */
+public class ConfigWatcher {
+    private final Path file;
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private final Logger logger;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public ConfigWatcher(Path file, long debounceMillis, Runnable onChange, Logger logger) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // 监听目录而不是文件：很多编辑器保存时先写临时文件再改名
+        this.file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY);
+        this.thread = new Thread(this::run, "auth-plugin-config-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            logger.warn("无法关闭配置文件监听: " + e.getMessage());
+        }
+        thread.interrupt();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key);
+                // 继续收集后续事件，直到安静 debounce 毫秒
+                while (changed) {
+                    WatchKey next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    drain(next);
+                }
+                if (changed) {
+                    try {
+                        onChange.run();
+                    } catch (Exception e) {
+                        logger.error("处理配置文件变化时发生错误", e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // 插件关闭
+        }
+    }
+
+    // 取出 key 上的全部事件并重新登记，返回其中是否有配置文件本身
+    private boolean drain(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed = true;
+            } else if (file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.authplugin;
+
+import java.util.UUID;
+
+public final class Credential {
+    private final UUID uniqueId;
+    private final String username;
+    private final String password;
+
+    public Credential(UUID uniqueId, String username, String password) {
+        this.uniqueId = uniqueId;
+        this.username = username;
+        this.password = password;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public Credential withPassword(String newPassword) {
+        return new Credential(uniqueId, username, newPassword);
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.authplugin;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 按 UUID 索引的紧凑账户表，替代 Map&lt;UUID, Credential&gt;。
+ * UUID 以两个 long 存在开放寻址（线性探测）的数组里，玩家名和密码哈希以 UTF-8 字节追加写入 1MB 的页中，
+ * 槽位只保存记录所在的位置。一百万个账户只占几个大数组和一百多个页，没有逐条的 UUID、String 和节点对象。
+ *
+ * 写入由 StampedLock 的写锁串行化；读取先乐观读，期间没有写入就不加锁，否则退回读锁。
+ * 记录写入页后不再修改，覆盖和删除只留下垃圾，垃圾超过一半时整体压缩。
+ */
+public final class CredentialIndex {
+    private static final int PAGE_BITS = 20;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int MAX_PAGES = 1 << (31 - PAGE_BITS);
+    private static final int MAX_FIELD_LENGTH = 0xFFFF;
+    // 槽位中的 0 表示空，记录位置存为 位置 + 1
+    private static final int EMPTY = 0;
+
+    private final StampedLock lock = new StampedLock();
+    private long[] keys;
+    private int[] refs;
+    private int mask;
+    private int size;
+    private byte[][] pages;
+    private int pageCount;
+    private int pageOffset;
+    private long usedBytes;
+    private long garbageBytes;
+
+    public CredentialIndex(int expectedSize) {
+        int capacity = tableCapacity(Math.max(16, expectedSize));
+        this.keys = new long[capacity * 2];
+        this.refs = new int[capacity];
+        this.mask = capacity - 1;
+        this.pages = new byte[4][];
+        this.pages[0] = new byte[PAGE_SIZE];
+        this.pageCount = 1;
+    }
+
+    public Credential get(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Credential credential = read(uuid, most, least);
+                if (lock.validate(stamp)) {
+                    return credential;
+                }
+            } catch (RuntimeException ignored) {
+                // 读到了写了一半的数据，下面加读锁重试
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return read(uuid, most, least);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(UUID uuid) {
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                boolean found = find(most, least) >= 0;
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException ignored) {
+                // 同上
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(most, least) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (lock.validate(stamp)) {
+            return current;
+        }
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 写入或覆盖一条凭据，返回原来的凭据。
+     */
+    public Credential put(Credential credential) {
+        UUID uuid = credential.getUniqueId();
+        byte[] name = credential.getUsername().getBytes(StandardCharsets.UTF_8);
+        byte[] password = credential.getPassword().getBytes(StandardCharsets.UTF_8);
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            Credential previous = slot < 0 ? null : decode(uuid, refs[slot] - 1);
+            store(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), slot,
+                name, 0, name.length, password, 0, password.length);
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 账户不存在时写入，玩家名和密码直接从 source 中复制，不经过 String。加载快照时使用。
+     */
+    public boolean putIfAbsent(long most, long least, byte[] source, int nameOffset, int nameLength,
+                               int passwordOffset, int passwordLength) {
+        long stamp = lock.writeLock();
+        try {
+            if (find(most, least) >= 0) {
+                return false;
+            }
+            store(most, least, -1, source, nameOffset, nameLength, source, passwordOffset, passwordLength);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 删除账户，返回被删除的凭据；账户不存在时返回 null。
+     */
+    public Credential remove(UUID uuid) {
+        long stamp = lock.writeLock();
+        try {
+            int slot = find(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+            if (slot < 0) {
+                return null;
+            }
+            int ref = refs[slot] - 1;
+            Credential previous = decode(uuid, ref);
+            garbageBytes += recordLength(ref);
+            deleteSlot(slot);
+            size--;
+            maybeCompactPages();
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 在读锁下依次访问所有账户的原始记录，期间的写入会等待。
+     * 记录格式为 [玩家名长度 u16][玩家名][密码长度 u16][密码]，visitor 不能修改 page。
+     */
+    public void forEachRecord(RecordVisitor visitor) throws IOException {
+        long stamp = lock.readLock();
+        try {
+            for (int slot = 0; slot < refs.length; slot++) {
+                if (refs[slot] != EMPTY) {
+                    int ref = refs[slot] - 1;
+                    visitor.visit(keys[slot * 2], keys[slot * 2 + 1], pages[ref >>> PAGE_BITS],
+                        ref & (PAGE_SIZE - 1), recordLength(ref));
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 数组和页占用的字节数（不含对象头），用于估算内存占用。
+     */
+    public long memoryUsage() {
+        long stamp = lock.readLock();
+        try {
+            return keys.length * 8L + refs.length * 4L + (long) pageCount * PAGE_SIZE + pages.length * 8L;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public interface RecordVisitor {
+        void visit(long most, long least, byte[] page, int offset, int length) throws IOException;
+    }
+
+    private Credential read(UUID uuid, long most, long least) {
+        int slot = find(most, least);
+        return slot < 0 ? null : decode(uuid, refs[slot] - 1);
+    }
+
+    // 返回 UUID 所在的槽位，不存在时返回 -1
+    private int find(long most, long least) {
+        long[] keys = this.keys;
+        int[] refs = this.refs;
+        int mask = refs.length - 1;
+        for (int slot = home(most, least, mask), probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+            if (refs[slot] == EMPTY) {
+                return -1;
+            }
+            if (keys[slot * 2] == most && keys[slot * 2 + 1] == least) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    // slot 为 -1 时插入新账户，否则覆盖该槽位的记录
+    private void store(long most, long least, int slot, byte[] name, int nameOffset, int nameLength,
+                       byte[] password, int passwordOffset, int passwordLength) {
+        if (nameLength > MAX_FIELD_LENGTH || passwordLength > MAX_FIELD_LENGTH) {
+            throw new IllegalArgumentException("玩家名或密码哈希过长");
+        }
+        int ref = append(name, nameOffset, nameLength, password, passwordOffset, passwordLength);
+        if (slot >= 0) {
+            garbageBytes += recordLength(refs[slot] - 1);
+            refs[slot] = ref + 1;
+            maybeCompactPages();
+            return;
+        }
+        if ((size + 1) * 3L > refs.length * 2L) {
+            resize(refs.length * 2);
+        }
+        slot = home(most, least, mask);
+        while (refs[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot * 2] = most;
+        keys[slot * 2 + 1] = least;
+        refs[slot] = ref + 1;
+        size++;
+    }
+
+    // 记录格式：[玩家名长度 u16][玩家名][密码长度 u16][密码]，不跨页
+    private int append(byte[] name, int nameOffset, int nameLength,
+                       byte[] password, int passwordOffset, int passwordLength) {
+        int length = 4 + nameLength + passwordLength;
+        if (pageOffset + length > PAGE_SIZE) {
+            if (pageCount == MAX_PAGES) {
+                throw new IllegalStateException("账户数据超过 2GB");
+            }
+            if (pageCount == pages.length) {
+                pages = Arrays.copyOf(pages, Math.min(MAX_PAGES, pages.length * 2));
+            }
+            pages[pageCount++] = new byte[PAGE_SIZE];
+            pageOffset = 0;
+        }
+        byte[] page = pages[pageCount - 1];
+        int offset = pageOffset;
+        page[offset] = (byte) (nameLength >>> 8);
+        page[offset + 1] = (byte) nameLength;
+        System.arraycopy(name, nameOffset, page, offset + 2, nameLength);
+        int passwordAt = offset + 2 + nameLength;
+        page[passwordAt] = (byte) (passwordLength >>> 8);
+        page[passwordAt + 1] = (byte) passwordLength;
+        System.arraycopy(password, passwordOffset, page, passwordAt + 2, passwordLength);
+        pageOffset += length;
+        usedBytes += length;
+        return ((pageCount - 1) << PAGE_BITS) | offset;
+    }
+
+    private Credential decode(UUID uuid, int ref) {
+        byte[] page = pages[ref >>> PAGE_BITS];
+        int offset = ref & (PAGE_SIZE - 1);
+        int nameLength = readLength(page, offset);
+        String name = new String(page, offset + 2, nameLength, StandardCharsets.UTF_8);
+        int passwordAt = offset + 2 + nameLength;
+        int passwordLength = readLength(page, passwordAt);
+        return new Credential(uuid, name, new String(page, passwordAt + 2, passwordLength, StandardCharsets.UTF_8));
+    }
+
+    private int recordLength(int ref) {
+        byte[] page = pages[ref >>> PAGE_BITS];
+        int offset = ref & (PAGE_SIZE - 1);
+        int nameLength = readLength(page, offset);
+        return 4 + nameLength + readLength(page, offset + 2 + nameLength);
+    }
+
+    private static int readLength(byte[] page, int offset) {
+        return ((page[offset] & 0xFF) << 8) | (page[offset + 1] & 0xFF);
+    }
+
+    // 线性探测的删除：把后面同一探测链上的槽位前移，不需要墓碑
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            if (refs[next] == EMPTY) {
+                break;
+            }
+            int home = home(keys[next * 2], keys[next * 2 + 1], mask);
+            boolean stays = hole <= next ? hole < home && home <= next : hole < home || home <= next;
+            if (stays) {
+                continue;
+            }
+            keys[hole * 2] = keys[next * 2];
+            keys[hole * 2 + 1] = keys[next * 2 + 1];
+            refs[hole] = refs[next];
+            hole = next;
+        }
+        refs[hole] = EMPTY;
+        keys[hole * 2] = 0;
+        keys[hole * 2 + 1] = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldRefs = refs;
+        long[] newKeys = new long[capacity * 2];
+        int[] newRefs = new int[capacity];
+        int newMask = capacity - 1;
+        for (int i = 0; i < oldRefs.length; i++) {
+            if (oldRefs[i] == EMPTY) {
+                continue;
+            }
+            int slot = home(oldKeys[i * 2], oldKeys[i * 2 + 1], newMask);
+            while (newRefs[slot] != EMPTY) {
+                slot = (slot + 1) & newMask;
+            }
+            newKeys[slot * 2] = oldKeys[i * 2];
+            newKeys[slot * 2 + 1] = oldKeys[i * 2 + 1];
+            newRefs[slot] = oldRefs[i];
+        }
+        keys = newKeys;
+        refs = newRefs;
+        mask = newMask;
+    }
+
+    // 垃圾超过一半时把仍然有效的记录复制到新页中，旧页整体丢弃
+    private void maybeCompactPages() {
+        if (pageCount < 2 || garbageBytes * 2 < usedBytes) {
+            return;
+        }
+        byte[][] oldPages = pages;
+        pages = new byte[Math.max(4, pageCount)][];
+        pages[0] = new byte[PAGE_SIZE];
+        pageCount = 1;
+        pageOffset = 0;
+        usedBytes = 0;
+        garbageBytes = 0;
+        for (int slot = 0; slot < refs.length; slot++) {
+            if (refs[slot] == EMPTY) {
+                continue;
+            }
+            int ref = refs[slot] - 1;
+            byte[] page = oldPages[ref >>> PAGE_BITS];
+            int offset = ref & (PAGE_SIZE - 1);
+            int nameLength = readLength(page, offset);
+            int passwordAt = offset + 2 + nameLength;
+            refs[slot] = append(page, offset + 2, nameLength, page, passwordAt + 2, readLength(page, passwordAt)) + 1;
+        }
+    }
+
+    private static int home(long most, long least, int mask) {
+        long hash = most ^ least;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    private static int tableCapacity(int expectedSize) {
+        // 装载因子 2/3
+        long needed = expectedSize * 3L / 2 + 1;
+        int capacity = 16;
+        while (capacity < needed && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,614 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * 追加写入的凭据日志。
+ * 每次注册、改密或删除只向 passwords.log 追加一条记录，由后台线程批量写入并 fsync；
+ * 日志达到阈值后在后台压缩为 passwords.dat 二进制快照（格式见 {@link CredentialSnapshot}）。
+ * 启动时在后台线程加载：先重放日志，再把快照映射到内存并行解析，快照中的记录不会覆盖日志中的修改。
+ * 只有旧版文本快照 passwords.txt 时，加载后立即转换为二进制快照。
+ * 加载期间已经解析到的账户可以直接查询，查不到的账户和所有写操作等待加载完成。
+ */
+public class CredentialLog {
+    private static final byte OP_REGISTER = 1;
+    private static final byte OP_CHANGE = 2;
+    private static final byte OP_DELETE = 3;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    // 快照每段至少这么大才值得并行解析
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int UUID_LENGTH = 36;
+    private static final Record CLOSE = new Record((byte) 0, null, null);
+
+    private final CredentialIndex accounts;
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final BlockingQueue<Record> pending = new LinkedBlockingQueue<>();
+    private final File snapshotFile;
+    private final File legacySnapshotFile;
+    private final File logFile;
+    private final Logger logger;
+    private final int batchSize;
+    private final int compactThreshold;
+    private FileChannel logChannel;
+    // 最后一批成功写入并 fsync 后的日志长度，只由写线程修改
+    private long logEnd;
+    private Thread writerThread;
+    private volatile boolean running;
+    private int recordsSinceCompaction;
+
+    public CredentialLog(File snapshotFile, File legacySnapshotFile, File logFile, Logger logger, int batchSize,
+                         int compactThreshold) {
+        this.snapshotFile = snapshotFile;
+        this.legacySnapshotFile = legacySnapshotFile;
+        this.logFile = logFile;
+        this.logger = logger;
+        this.batchSize = Math.max(1, batchSize);
+        this.compactThreshold = Math.max(1, compactThreshold);
+        // 按快照大小预估账户数，加载时尽量不扩容；一条记录大约 100 字节
+        long snapshotSize = Math.max(snapshotFile.length(), legacySnapshotFile.length());
+        this.accounts = new CredentialIndex((int) Math.min(1 << 24, Math.max(16, snapshotSize / 100)));
+    }
+
+    /**
+     * 开始在后台加载账户，立即返回；加载完成或失败时 {@link #whenLoaded()} 完成。
+     */
+    public synchronized void open() throws IOException {
+        if (running) {
+            return;
+        }
+        // 确保目录存在
+        snapshotFile.getParentFile().mkdirs();
+        running = true;
+
+        Thread loader = new Thread(this::load, "auth-plugin-credential-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public CompletableFuture<Void> whenLoaded() {
+        return loaded;
+    }
+
+    private void load() {
+        long start = System.nanoTime();
+        try {
+            // 先重放日志：日志比快照新，之后快照中的记录只在账户不存在且没有被删除时写入
+            Set<UUID> deleted = new HashSet<>();
+            recordsSinceCompaction = replayLog(deleted);
+            if (snapshotFile.exists()) {
+                CredentialSnapshot.read(snapshotFile, accounts, deleted);
+            } else if (legacySnapshotFile.exists()) {
+                loadLegacySnapshot(deleted);
+                migrateLegacySnapshot();
+            }
+
+            synchronized (this) {
+                logChannel = FileChannel.open(logFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                logEnd = logChannel.size();
+                writerThread = new Thread(this::runWriter, "auth-plugin-credential-log");
+                writerThread.setDaemon(true);
+                writerThread.start();
+            }
+            logger.info("已加载 " + accounts.size() + " 个账户，用时 "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+            loaded.complete(null);
+        } catch (Exception e) {
+            logger.error("无法加载密码文件", e);
+            // 加载失败时不启动写线程，避免用不完整的数据覆盖快照
+            synchronized (this) {
+                running = false;
+            }
+            loaded.completeExceptionally(e);
+        }
+    }
+
+    public Credential get(UUID uuid) {
+        return accounts.get(uuid);
+    }
+
+    /**
+     * 查询账户。已经加载到的账户立即返回，否则等待加载完成后再确认是否存在。
+     */
+    public CompletableFuture<Credential> lookup(UUID uuid) {
+        Credential credential = accounts.get(uuid);
+        if (credential != null || (loaded.isDone() && !loaded.isCompletedExceptionally())) {
+            return CompletableFuture.completedFuture(credential);
+        }
+        return loaded.thenApply(ignored -> accounts.get(uuid));
+    }
+
+    public boolean contains(UUID uuid) {
+        return accounts.contains(uuid);
+    }
+
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * 写入或覆盖一条凭据。内存立即生效，返回的 future 在记录落盘后完成；写入失败时内存中的修改会被撤销。
+     */
+    public CompletableFuture<Void> put(Credential credential) {
+        if (!loaded.isDone()) {
+            return loaded.thenCompose(ignored -> put(credential));
+        }
+        // 加锁保证内存中的修改顺序与日志中的记录顺序一致
+        synchronized (this) {
+            if (!running) {
+                return closedFuture();
+            }
+            Credential previous = accounts.put(credential);
+            return enqueue(new Record(previous == null ? OP_REGISTER : OP_CHANGE, credential, previous));
+        }
+    }
+
+    /**
+     * 仅在账户不存在时写入，返回的 future 在记录落盘后以 true 完成；账户已存在时直接返回 false。
+     */
+    public CompletableFuture<Boolean> insert(Credential credential) {
+        if (!loaded.isDone()) {
+            return loaded.thenCompose(ignored -> insert(credential));
+        }
+        synchronized (this) {
+            if (accounts.contains(credential.getUniqueId())) {
+                return CompletableFuture.completedFuture(false);
+            }
+            return put(credential).thenApply(ignored -> true);
+        }
+    }
+
+    public CompletableFuture<Void> remove(UUID uuid) {
+        if (!loaded.isDone()) {
+            return loaded.thenCompose(ignored -> remove(uuid));
+        }
+        synchronized (this) {
+            if (!running) {
+                return closedFuture();
+            }
+            Credential previous = accounts.remove(uuid);
+            if (previous == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return enqueue(new Record(OP_DELETE, previous, previous));
+        }
+    }
+
+    /**
+     * 写完所有待写记录，压缩为快照后关闭日志。加载还没结束时先等待加载结束。
+     */
+    public void close() {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+        }
+        try {
+            loaded.join();
+        } catch (RuntimeException ignored) {
+            // 加载失败时 running 已经是 false
+        }
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            pending.add(CLOSE);
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            logChannel.close();
+        } catch (IOException e) {
+            logger.error("无法关闭凭据日志", e);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Record record) {
+        pending.add(record);
+        return record.durable;
+    }
+
+    private static CompletableFuture<Void> closedFuture() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(new IllegalStateException("凭据日志已关闭"));
+        return future;
+    }
+
+    private void runWriter() {
+        List<Record> batch = new ArrayList<>(batchSize);
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                // 只能通过 close() 结束，忽略中断
+                continue;
+            }
+            // 把等待 fsync 期间积压的记录合并成一批
+            pending.drainTo(batch, batchSize - 1);
+            closing = writeBatch(batch);
+            batch.clear();
+
+            if (closing || recordsSinceCompaction >= compactThreshold) {
+                compact();
+            }
+        }
+    }
+
+    private boolean writeBatch(List<Record> batch) {
+        boolean closing = false;
+        int written = 0;
+        try {
+            // 上一批失败后没能截断时先截断，不能在写了一半的记录后面继续追加，重放时会在那里停下
+            if (logChannel.size() != logEnd) {
+                logChannel.truncate(logEnd);
+            }
+            for (Record record : batch) {
+                if (record == CLOSE) {
+                    closing = true;
+                    continue;
+                }
+                ByteBuffer buffer = encode(record);
+                while (buffer.hasRemaining()) {
+                    logChannel.write(buffer);
+                }
+                written++;
+            }
+            if (written > 0) {
+                logChannel.force(false);
+            }
+            logEnd = logChannel.size();
+            recordsSinceCompaction += written;
+            for (Record record : batch) {
+                if (record != CLOSE) {
+                    record.durable.complete(null);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("无法写入凭据日志", e);
+            discardBatch(batch);
+            for (Record record : batch) {
+                if (record != CLOSE) {
+                    record.durable.completeExceptionally(e);
+                }
+            }
+        }
+        return closing;
+    }
+
+    /**
+     * 截掉这一批已经写出的部分，并撤销这一批在内存中的修改，让内存和磁盘保持一致。
+     * 之后又修改了同一账户的记录不撤销，它们会作为完整的记录写入日志。
+     */
+    private void discardBatch(List<Record> batch) {
+        try {
+            logChannel.truncate(logEnd);
+        } catch (IOException e) {
+            // 下一批写入前会再次尝试截断
+            logger.error("无法截断凭据日志", e);
+        }
+        synchronized (this) {
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                Record record = batch.get(i);
+                if (record != CLOSE) {
+                    rollback(record);
+                }
+            }
+        }
+    }
+
+    private void rollback(Record record) {
+        UUID uuid = record.credential.getUniqueId();
+        if (record.op == OP_DELETE) {
+            if (!accounts.contains(uuid)) {
+                accounts.put(record.previous);
+            }
+            return;
+        }
+        Credential current = accounts.get(uuid);
+        if (current == null || !current.getUsername().equals(record.credential.getUsername())
+                || !current.getPassword().equals(record.credential.getPassword())) {
+            return;
+        }
+        if (record.previous == null) {
+            accounts.remove(uuid);
+        } else {
+            accounts.put(record.previous);
+        }
+    }
+
+    private void compact() {
+        if (recordsSinceCompaction == 0) {
+            return;
+        }
+        try {
+            writeSnapshot();
+            // 快照已包含日志中的全部修改，可以清空日志；
+            // 若在此之前崩溃，重放日志也只是重复应用相同的修改
+            logChannel.truncate(0);
+            logChannel.force(true);
+            logEnd = 0;
+            recordsSinceCompaction = 0;
+        } catch (IOException e) {
+            logger.error("无法压缩凭据日志", e);
+        }
+    }
+
+    /**
+     * 读取旧版文本快照 passwords.txt。文件映射到内存后按换行切成多段并行解析。
+     */
+    private void loadLegacySnapshot(Set<UUID> deleted) throws IOException {
+        try (FileChannel channel = FileChannel.open(legacySnapshotFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            int threads = Runtime.getRuntime().availableProcessors();
+            // 每个线程分几段，解析快慢不同时也能均衡；单段映射不能超过 2GB
+            int chunks = (int) Math.max(Math.min(threads * 4L, size / MIN_CHUNK_SIZE), size / (1L << 30) + 1);
+            long[] bounds = chunkBounds(channel, size, chunks);
+            List<Runnable> tasks = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+                tasks.add(() -> parseChunk(chunk, deleted));
+            }
+            CredentialSnapshot.runParallel(tasks);
+        }
+    }
+
+    // 写出二进制快照后清空日志（快照已包含日志中的修改），最后把文本快照改名保留
+    private void migrateLegacySnapshot() throws IOException {
+        long written = CredentialSnapshot.write(snapshotFile, accounts);
+        if (logFile.exists()) {
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(0);
+                channel.force(true);
+            }
+        }
+        recordsSinceCompaction = 0;
+        File migrated = new File(legacySnapshotFile.getPath() + ".migrated");
+        Files.move(legacySnapshotFile.toPath(), migrated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        logger.info("已将 " + legacySnapshotFile.getName() + " 中的 " + written + " 个账户转换为 "
+            + snapshotFile.getName() + "，原文件保存为 " + migrated.getName());
+    }
+
+    // 把文件切成 chunks 段，每个分界点都挪到下一个换行符之后，保证每段都是完整的行
+    private static long[] chunkBounds(FileChannel channel, long size, int chunks) throws IOException {
+        long[] bounds = new long[chunks + 1];
+        bounds[chunks] = size;
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (int i = 1; i < chunks; i++) {
+            long position = Math.max(bounds[i - 1], size / chunks * i);
+            bounds[i] = size;
+            search:
+            while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int j = 0; j < read; j++) {
+                    if (buffer.get(j) == '\n') {
+                        bounds[i] = position + j + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * 解析一段文本快照。格式：UUID:玩家名:密码（密码中允许出现冒号）。
+     * 每行先复制到线程自己的缓冲区，UUID 直接从十六进制字节解析，不创建中间字符串。
+     */
+    private void parseChunk(ByteBuffer chunk, Set<UUID> deleted) {
+        byte[] line = new byte[256];
+        while (chunk.hasRemaining()) {
+            int length = 0;
+            while (chunk.hasRemaining()) {
+                byte b = chunk.get();
+                if (b == '\n') {
+                    break;
+                }
+                if (length == line.length) {
+                    line = Arrays.copyOf(line, length * 2);
+                }
+                line[length++] = b;
+            }
+            if (length > 0 && line[length - 1] == '\r') {
+                length--;
+            }
+            parseLine(line, length, deleted);
+        }
+    }
+
+    private void parseLine(byte[] line, int length, Set<UUID> deleted) {
+        int first = indexOf(line, ':', 0, length);
+        int second = first < 0 ? -1 : indexOf(line, ':', first + 1, length);
+        if (second < 0) {
+            return;
+        }
+        UUID uuid = first == UUID_LENGTH ? parseUuid(line) : null;
+        if (uuid == null) {
+            // 不是标准格式时交给 UUID.fromString 处理
+            String text = new String(line, 0, first, StandardCharsets.UTF_8);
+            try {
+                uuid = UUID.fromString(text);
+            } catch (IllegalArgumentException e) {
+                logger.warn("跳过无效的密码记录: " + text);
+                return;
+            }
+        }
+        if (!deleted.isEmpty() && deleted.contains(uuid)) {
+            return;
+        }
+        // 玩家名和密码的字节直接复制进索引
+        accounts.putIfAbsent(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), line,
+            first + 1, second - first - 1, second + 1, length - second - 1);
+    }
+
+    private static int indexOf(byte[] bytes, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 解析 8-4-4-4-12 格式的 UUID，格式不对时返回 null
+    private static UUID parseUuid(byte[] line) {
+        long most = 0;
+        long least = 0;
+        int digits = 0;
+        for (int i = 0; i < UUID_LENGTH; i++) {
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (line[i] != '-') {
+                    return null;
+                }
+                continue;
+            }
+            int digit = Character.digit(line[i], 16);
+            if (digit < 0) {
+                return null;
+            }
+            if (digits++ < 16) {
+                most = (most << 4) | digit;
+            } else {
+                least = (least << 4) | digit;
+            }
+        }
+        return new UUID(most, least);
+    }
+
+    private void writeSnapshot() throws IOException {
+        CredentialSnapshot.write(snapshotFile, accounts);
+    }
+
+    /**
+     * 重放日志并返回有效记录数。遇到不完整或校验失败的记录（崩溃时写了一半）时截断日志尾部。
+     */
+    private int replayLog(Set<UUID> deleted) throws IOException {
+        if (!logFile.exists()) {
+            return 0;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(logFile.toPath()));
+        int validEnd = 0;
+        int records = 0;
+        while (buffer.remaining() >= 4) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || buffer.remaining() < length + 4) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            if (checksum(payload) != buffer.getInt()) {
+                break;
+            }
+            apply(ByteBuffer.wrap(payload), deleted);
+            validEnd = buffer.position();
+            records++;
+        }
+
+        if (validEnd < buffer.limit()) {
+            logger.warn("凭据日志尾部有 " + (buffer.limit() - validEnd) + " 字节损坏的数据，已截断");
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+        return records;
+    }
+
+    private void apply(ByteBuffer payload, Set<UUID> deleted) {
+        byte op = payload.get();
+        UUID uuid = new UUID(payload.getLong(), payload.getLong());
+        String username = readString(payload);
+        String password = readString(payload);
+        if (op == OP_DELETE) {
+            accounts.remove(uuid);
+            deleted.add(uuid);
+        } else {
+            accounts.put(new Credential(uuid, username, password));
+            deleted.remove(uuid);
+        }
+    }
+
+    // 记录格式：[长度][操作][UUID 高位][UUID 低位][玩家名][密码][CRC32]
+    private static ByteBuffer encode(Record record) {
+        Credential credential = record.credential;
+        byte[] username = credential.getUsername().getBytes(StandardCharsets.UTF_8);
+        byte[] password = record.op == OP_DELETE
+            ? new byte[0]
+            : credential.getPassword().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 16 + 2 + username.length + 2 + password.length;
+
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length + 4);
+        buffer.putInt(length);
+        buffer.put(record.op);
+        buffer.putLong(credential.getUniqueId().getMostSignificantBits());
+        buffer.putLong(credential.getUniqueId().getLeastSignificantBits());
+        buffer.putShort((short) username.length);
+        buffer.put(username);
+        buffer.putShort((short) password.length);
+        buffer.put(password);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 4, length);
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static final class Record {
+        private final byte op;
+        private final Credential credential;
+        // 写入失败时恢复的旧值，新注册的账户为 null
+        private final Credential previous;
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Record(byte op, Credential credential, Credential previous) {
+            this.op = op;
+            this.credential = credential;
+            this.previous = previous;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.authplugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 二进制账户快照 passwords.dat。
+ *
+ * 文件头（32 字节）：魔数 "AUTHCRED"、版本号、账户总数、写入时间、文件头 CRC32C。
+ * 之后是若干数据块：[记录数][数据长度][数据][CRC32C]，校验覆盖记录数、长度和数据，每块约 64KB。
+ * 每条记录：[UUID 高位][UUID 低位][玩家名长度 u16][玩家名][密码长度 u16][密码]，与 CredentialIndex 页内格式一致，
+ * 写入时直接复制索引中的字节，读取时直接从映射的文件复制进索引。
+ * 快照先写入临时文件再改名替换，任何一块校验失败或账户总数不符都拒绝加载，避免有账户被当成未注册。
+ */
+final class CredentialSnapshot {
+    static final int VERSION = 1;
+    private static final byte[] MAGIC = {'A', 'U', 'T', 'H', 'C', 'R', 'E', 'D'};
+    private static final int HEADER_SIZE = 32;
+    private static final int BLOCK_HEADER_SIZE = 8;
+    private static final int BLOCK_TARGET_SIZE = 64 * 1024;
+    private static final int MAX_RECORD_SIZE = 16 + 2 + 0xFFFF + 2 + 0xFFFF;
+    private static final int MAX_BLOCK_SIZE = BLOCK_TARGET_SIZE + MAX_RECORD_SIZE;
+
+    private CredentialSnapshot() {
+    }
+
+    /**
+     * 把索引中的全部账户写入 file，返回写入的账户数。
+     */
+    static long write(File file, CredentialIndex index) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        long total;
+        try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(HEADER_SIZE);
+            BlockWriter writer = new BlockWriter(channel);
+            index.forEachRecord(writer::add);
+            writer.flush();
+            total = writer.total;
+
+            // 块写完之后再写文件头，文件头里的总数用来发现被截断的文件
+            byte[] header = new byte[HEADER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            buffer.put(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(total);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.putInt(Crc32c.compute(header, 0, HEADER_SIZE - 4));
+            buffer.flip();
+            writeFully(channel, buffer, 0);
+            channel.force(true);
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return total;
+    }
+
+    /**
+     * 读取快照，把不在 deleted 中且索引里还没有的账户写入索引，返回快照中的账户数。
+     * 数据块按 CPU 核心数分组并行校验和解析。
+     */
+    static long read(File file, CredentialIndex index, Set<UUID> deleted) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("账户文件超过 2GB: " + file);
+            }
+            if (size < HEADER_SIZE) {
+                throw new IOException("账户文件不完整: " + file);
+            }
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            byte[] header = new byte[HEADER_SIZE];
+            map.get(header);
+            ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+            byte[] magic = new byte[MAGIC.length];
+            headerBuffer.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是账户文件: " + file);
+            }
+            if (Crc32c.compute(header, 0, HEADER_SIZE - 4) != headerBuffer.getInt(HEADER_SIZE - 4)) {
+                throw new IOException("账户文件头校验失败: " + file);
+            }
+            int version = headerBuffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的账户文件版本 " + version + ": " + file);
+            }
+            long expected = headerBuffer.getLong();
+
+            // 先顺序扫描块边界，只读每块的长度
+            int[] blocks = new int[16];
+            int blockCount = 0;
+            int position = HEADER_SIZE;
+            while (position < size) {
+                if (size - position < BLOCK_HEADER_SIZE + 4) {
+                    throw new IOException("账户文件在偏移 " + position + " 处被截断");
+                }
+                int length = map.getInt(position + 4);
+                if (length < 0 || length > MAX_BLOCK_SIZE || position + BLOCK_HEADER_SIZE + length + 4L > size) {
+                    throw new IOException("账户文件在偏移 " + position + " 处损坏");
+                }
+                if (blockCount == blocks.length) {
+                    blocks = Arrays.copyOf(blocks, blockCount * 2);
+                }
+                blocks[blockCount++] = position;
+                position += BLOCK_HEADER_SIZE + length + 4;
+            }
+
+            int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), blockCount / 4));
+            AtomicLong records = new AtomicLong();
+            List<Runnable> tasks = new ArrayList<>(threads);
+            int[] starts = blocks;
+            int total = blockCount;
+            for (int t = 0; t < threads; t++) {
+                int from = (int) ((long) total * t / threads);
+                int to = (int) ((long) total * (t + 1) / threads);
+                // 每个任务使用自己的 ByteBuffer 视图和缓冲区
+                ByteBuffer view = map.duplicate();
+                tasks.add(() -> records.addAndGet(readBlocks(view, starts, from, to, index, deleted)));
+            }
+            runParallel(tasks);
+
+            if (records.get() != expected) {
+                throw new IOException("账户文件记录数不符：文件头为 " + expected + "，实际为 " + records.get());
+            }
+            return expected;
+        }
+    }
+
+    private static long readBlocks(ByteBuffer map, int[] starts, int from, int to, CredentialIndex index,
+                                   Set<UUID> deleted) {
+        byte[] block = new byte[BLOCK_TARGET_SIZE + BLOCK_HEADER_SIZE];
+        long records = 0;
+        for (int b = from; b < to; b++) {
+            int start = starts[b];
+            int length = BLOCK_HEADER_SIZE + map.getInt(start + 4);
+            if (block.length < length) {
+                block = new byte[length];
+            }
+            map.position(start);
+            map.get(block, 0, length);
+            if (Crc32c.compute(block, 0, length) != map.getInt(start + length)) {
+                throw new UncheckedIOException(new IOException("账户文件在偏移 " + start + " 处校验失败"));
+            }
+            records += readRecords(block, length, start, index, deleted);
+        }
+        return records;
+    }
+
+    private static int readRecords(byte[] block, int length, int start, CredentialIndex index, Set<UUID> deleted) {
+        int count = readInt(block, 0);
+        int offset = BLOCK_HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (offset + 20 > length) {
+                throw new UncheckedIOException(new IOException("账户文件在偏移 " + start + " 处的数据块格式错误"));
+            }
+            long most = readLong(block, offset);
+            long least = readLong(block, offset + 8);
+            int nameLength = readShort(block, offset + 16);
+            int passwordAt = offset + 18 + nameLength;
+            if (passwordAt + 2 > length) {
+                throw new UncheckedIOException(new IOException("账户文件在偏移 " + start + " 处的数据块格式错误"));
+            }
+            int passwordLength = readShort(block, passwordAt);
+            int end = passwordAt + 2 + passwordLength;
+            if (end > length) {
+                throw new UncheckedIOException(new IOException("账户文件在偏移 " + start + " 处的数据块格式错误"));
+            }
+            if (deleted.isEmpty() || !deleted.contains(new UUID(most, least))) {
+                index.putIfAbsent(most, least, block, offset + 18, nameLength, passwordAt + 2, passwordLength);
+            }
+            offset = end;
+        }
+        if (offset != length) {
+            throw new UncheckedIOException(new IOException("账户文件在偏移 " + start + " 处的数据块格式错误"));
+        }
+        return count;
+    }
+
+    /**
+     * 在临时线程池上并行执行任务，只有一个任务时直接在当前线程执行。
+     * 任务抛出的 UncheckedIOException 还原为 IOException。
+     */
+    static void runParallel(List<Runnable> tasks) throws IOException {
+        if (tasks.size() == 1) {
+            try {
+                tasks.get(0).run();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        AtomicInteger threadId = new AtomicInteger();
+        int threads = Math.min(Runtime.getRuntime().availableProcessors(), tasks.size());
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-loader-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Runnable task : tasks) {
+                futures.add(pool.submit(task));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("加载账户文件时被中断", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException("无法解析账户文件", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    private static int readShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+            | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return (long) readInt(bytes, offset) << 32 | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    // 把记录攒成约 64KB 的块再写出；单条记录超过 64KB 时独占一块，数据长度不超过 MAX_BLOCK_SIZE
+    private static final class BlockWriter {
+        private final FileChannel channel;
+        private final byte[] block = new byte[BLOCK_HEADER_SIZE + MAX_BLOCK_SIZE + 4];
+        private final ByteBuffer buffer = ByteBuffer.wrap(block);
+        private int count;
+        private long total;
+
+        private BlockWriter(FileChannel channel) {
+            this.channel = channel;
+            buffer.position(BLOCK_HEADER_SIZE);
+        }
+
+        private void add(long most, long least, byte[] page, int offset, int length) throws IOException {
+            // 加入这条记录会超出目标大小时先写出已有的记录
+            if (buffer.position() + 16 + length > BLOCK_HEADER_SIZE + BLOCK_TARGET_SIZE) {
+                flush();
+            }
+            buffer.putLong(most);
+            buffer.putLong(least);
+            buffer.put(page, offset, length);
+            count++;
+            total++;
+        }
+
+        private void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int length = buffer.position() - BLOCK_HEADER_SIZE;
+            buffer.putInt(0, count);
+            buffer.putInt(4, length);
+            buffer.putInt(Crc32c.compute(block, 0, BLOCK_HEADER_SIZE + length));
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+            buffer.position(BLOCK_HEADER_SIZE);
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.authplugin;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 账户凭据存储。所有读写都返回 future，实现可以自行决定在哪个线程上执行。
+ */
+public interface CredentialStore {
+    /**
+     * 打开存储。可以在后台继续加载数据，加载完成前的查询和写入由实现自行等待。
+     */
+    void open() throws IOException;
+
+    CompletableFuture<Optional<Credential>> lookup(UUID uuid);
+
+    /**
+     * 插入新账户；账户已存在时返回 false。
+     */
+    CompletableFuture<Boolean> insert(Credential credential);
+
+    CompletableFuture<Void> update(Credential credential);
+
+    CompletableFuture<Void> delete(UUID uuid);
+
+    void close();
+}
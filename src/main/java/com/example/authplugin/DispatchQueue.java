@@ -0,0 +1,265 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.ConnectionRequestBuilder;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 登录后传送到目标服的排队器。每个目标服同时进行中的传送不超过 maxInFlight，
+ * 其余玩家按先后顺序排队并定期收到排队位置。传送结果来自 connect() 返回的 future，
+ * 失败时按指数退避加随机抖动重试，后端卡住时排队会自然放慢。
+ */
+public class DispatchQueue {
+    private static final long POSITION_INTERVAL_SECONDS = 5;
+
+    private final ServerRouter router;
+    private final Logger logger;
+    private final Supplier<MessageCatalog> messages;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private final ArrayDeque<Ticket> queue = new ArrayDeque<>();
+    // 排队、传送中或等待重试的玩家，断线后由 cancel 移除，同名重连的新连接不会被旧票据挡住
+    private final Map<UUID, Ticket> queued = new HashMap<>();
+    private final Map<RegisteredServer, Integer> inFlight = new HashMap<>();
+    private volatile int maxInFlight;
+    private volatile int maxRetries;
+    private volatile long retryDelayMillis;
+
+    public DispatchQueue(ServerRouter router, Logger logger, Supplier<MessageCatalog> messages, int maxInFlight,
+                         int maxRetries, long retryDelayMillis) {
+        this.router = router;
+        this.logger = logger;
+        this.messages = messages;
+        configure(maxInFlight, maxRetries, retryDelayMillis);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::announcePositions, POSITION_INTERVAL_SECONDS,
+            POSITION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void configure(int maxInFlight, int maxRetries, long retryDelayMillis) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryDelayMillis = Math.max(100, retryDelayMillis);
+    }
+
+    /**
+     * 把玩家加入传送队列，已经在队列中的玩家不会重复加入。
+     */
+    public void dispatch(Player player) {
+        Ticket ticket = new Ticket(player);
+        synchronized (lock) {
+            if (queued.putIfAbsent(player.getUniqueId(), ticket) != null) {
+                return;
+            }
+            queue.addLast(ticket);
+        }
+        drain();
+
+        int position = positionOf(ticket);
+        if (position > 0) {
+            messages.get().send(player, Message.QUEUED, position);
+        }
+    }
+
+    /**
+     * 玩家断线时移除其票据，已经发出的传送请求照常结束，等待重试的票据不再重试。
+     */
+    public void cancel(Player player) {
+        synchronized (lock) {
+            Ticket ticket = queued.get(player.getUniqueId());
+            if (ticket == null || ticket.player != player) {
+                return;
+            }
+            queued.remove(player.getUniqueId());
+            queue.remove(ticket);
+        }
+    }
+
+    public int getQueueLength() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            int total = 0;
+            for (int count : inFlight.values()) {
+                total += count;
+            }
+            return total;
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void drain() {
+        List<Ticket> ready = new ArrayList<>();
+        List<RegisteredServer> targets = new ArrayList<>();
+        List<Ticket> unroutable = new ArrayList<>();
+        synchronized (lock) {
+            boolean hasDestinations = router.getDestinations().length > 0;
+            while (!queue.isEmpty()) {
+                Ticket ticket = queue.peekFirst();
+                if (!ticket.player.isActive() || !hasDestinations) {
+                    queue.pollFirst();
+                    queued.remove(ticket.player.getUniqueId(), ticket);
+                    if (ticket.player.isActive()) {
+                        unroutable.add(ticket);
+                    }
+                    continue;
+                }
+                RegisteredServer target = pickLocked();
+                if (target == null) {
+                    break;
+                }
+                queue.pollFirst();
+                inFlight.merge(target, 1, Integer::sum);
+                ready.add(ticket);
+                targets.add(target);
+            }
+        }
+        for (Ticket ticket : unroutable) {
+            messages.get().send(ticket.player, Message.NO_DESTINATION);
+        }
+        for (int i = 0; i < ready.size(); i++) {
+            connect(ready.get(i), targets.get(i));
+        }
+    }
+
+    // 在有空位的目标服中选择在线人数加进行中传送数最少的，调用方必须持有 lock
+    private RegisteredServer pickLocked() {
+        RegisteredServer best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (RegisteredServer candidate : router.getDestinations()) {
+            int pending = inFlight.getOrDefault(candidate, 0);
+            if (pending >= maxInFlight) {
+                continue;
+            }
+            int load = candidate.getPlayersConnected().size() + pending;
+            if (load < bestLoad) {
+                best = candidate;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private void connect(Ticket ticket, RegisteredServer target) {
+        Player player = ticket.player;
+        messages.get().send(player, Message.TRANSFERRING);
+        try {
+            player.createConnectionRequest(target).connect().whenComplete((result, error) -> {
+                release(target);
+                if (error == null && (result.isSuccessful()
+                        || result.getStatus() == ConnectionRequestBuilder.Status.ALREADY_CONNECTED)) {
+                    finish(ticket);
+                } else {
+                    retry(ticket, target, error != null ? error.getMessage() : String.valueOf(result.getStatus()));
+                }
+                drain();
+            });
+        } catch (RuntimeException e) {
+            release(target);
+            retry(ticket, target, e.getMessage());
+            drain();
+        }
+    }
+
+    private void retry(Ticket ticket, RegisteredServer target, String reason) {
+        Player player = ticket.player;
+        if (!player.isActive()) {
+            finish(ticket);
+            return;
+        }
+        ticket.attempts++;
+        if (ticket.attempts > maxRetries) {
+            logger.warn("玩家 " + player.getUsername() + " 无法连接到 " + target.getServerInfo().getName() + ": " + reason);
+            messages.get().send(player, Message.TRANSFER_FAILED);
+            finish(ticket);
+            return;
+        }
+
+        // 指数退避加随机抖动，避免一批失败的玩家同时重试
+        long base = retryDelayMillis << Math.min(ticket.attempts - 1, 6);
+        long delay = base + ThreadLocalRandom.current().nextLong(retryDelayMillis);
+        messages.get().send(player, Message.TRANSFER_RETRY, delay / 1000 + 1);
+        scheduler.schedule(() -> {
+            synchronized (lock) {
+                // 等待期间玩家断线，票据已被 cancel 移除
+                if (queued.get(ticket.player.getUniqueId()) == ticket) {
+                    queue.addFirst(ticket);
+                }
+            }
+            drain();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void release(RegisteredServer target) {
+        synchronized (lock) {
+            inFlight.computeIfPresent(target, (server, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    private void finish(Ticket ticket) {
+        synchronized (lock) {
+            queued.remove(ticket.player.getUniqueId(), ticket);
+        }
+    }
+
+    // 队列中的位置，从 1 开始；不在队列中返回 0
+    private int positionOf(Ticket ticket) {
+        synchronized (lock) {
+            int position = 1;
+            for (Ticket queuedTicket : queue) {
+                if (queuedTicket == ticket) {
+                    return position;
+                }
+                position++;
+            }
+            return 0;
+        }
+    }
+
+    private void announcePositions() {
+        List<Ticket> snapshot;
+        synchronized (lock) {
+            snapshot = new ArrayList<>(queue);
+        }
+        MessageCatalog catalog = messages.get();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Player player = snapshot.get(i).player;
+            if (player.isActive()) {
+                catalog.send(player, Message.QUEUE_POSITION, i + 1, snapshot.size());
+            }
+        }
+    }
+
+    private static final class Ticket {
+        private final Player player;
+        private int attempts;
+
+        private Ticket(Player player) {
+            this.player = player;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.authplugin;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+// 基于 passwords.dat 二进制快照 + passwords.log 追加日志的存储，全部账户常驻内存，旧版 passwords.txt 在首次加载时迁移；open 只启动后台加载，不阻塞代理启动
+public class FileCredentialStore implements CredentialStore {
+    private final CredentialLog log;
+
+    public FileCredentialStore(CredentialLog log) {
+        this.log = log;
+    }
+
+    @Override
+    public void open() throws IOException {
+        log.open();
+    }
+
+    @Override
+    public CompletableFuture<Optional<Credential>> lookup(UUID uuid) {
+        return log.lookup(uuid).thenApply(Optional::ofNullable);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insert(Credential credential) {
+        return log.insert(credential);
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Credential credential) {
+        return log.put(credential);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        return log.remove(uuid);
+    }
+
+    @Override
+    public void close() {
+        log.close();
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 H2 的账户存储。账户只保存在数据库中，内存里只缓存在线玩家；
+ * 使用 tcp:// 地址时多个代理可以共享同一个账户库。
+ */
+public class H2CredentialStore implements CredentialStore {
+    private static final String CREATE_TABLE =
+        "CREATE TABLE IF NOT EXISTS auth_accounts ("
+            + "uuid CHAR(36) PRIMARY KEY, "
+            + "username VARCHAR(64) NOT NULL, "
+            + "password VARCHAR(512) NOT NULL)";
+    private static final String SELECT = "SELECT username, password FROM auth_accounts WHERE uuid = ?";
+    private static final String INSERT = "INSERT INTO auth_accounts (uuid, username, password) VALUES (?, ?, ?)";
+    private static final String UPDATE = "UPDATE auth_accounts SET username = ?, password = ? WHERE uuid = ?";
+    private static final String DELETE = "DELETE FROM auth_accounts WHERE uuid = ?";
+    // 违反唯一约束时的 SQLState
+    private static final String DUPLICATE_KEY = "23505";
+
+    private final String url;
+    private final Logger logger;
+    private final SqlConnectionPool pool;
+    private final ExecutorService executor;
+
+    public H2CredentialStore(String url, Logger logger, int poolSize, int statementCacheSize) {
+        this.url = url;
+        this.logger = logger;
+        // 直接使用驱动实例，避免插件类加载器下 DriverManager 找不到驱动
+        org.h2.Driver driver = new org.h2.Driver();
+        this.pool = new SqlConnectionPool(() -> driver.connect(url, new Properties()),
+            poolSize, statementCacheSize, 10000);
+        // 线程数与连接数相同，查询不会在连接池上排队
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(pool.getMaxSize(), runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-sql-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void open() throws IOException {
+        try {
+            execute(connection -> {
+                try (Statement statement = connection.getConnection().createStatement()) {
+                    statement.execute(CREATE_TABLE);
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            throw new IOException("无法初始化数据库 " + url, e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Optional<Credential>> lookup(UUID uuid) {
+        return submit(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT);
+            statement.setString(1, uuid.toString());
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next()) {
+                    return Optional.empty();
+                }
+                return Optional.of(new Credential(uuid, result.getString(1), result.getString(2)));
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insert(Credential credential) {
+        return submit(connection -> {
+            PreparedStatement statement = connection.prepare(INSERT);
+            statement.setString(1, credential.getUniqueId().toString());
+            statement.setString(2, credential.getUsername());
+            statement.setString(3, credential.getPassword());
+            try {
+                statement.executeUpdate();
+                return true;
+            } catch (SQLException e) {
+                if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                    return false;
+                }
+                throw e;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Credential credential) {
+        return submit(connection -> {
+            PreparedStatement statement = connection.prepare(UPDATE);
+            statement.setString(1, credential.getUsername());
+            statement.setString(2, credential.getPassword());
+            statement.setString(3, credential.getUniqueId().toString());
+            statement.executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        return submit(connection -> {
+            PreparedStatement statement = connection.prepare(DELETE);
+            statement.setString(1, uuid.toString());
+            statement.executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("数据库任务未能在 10 秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.close();
+    }
+
+    private <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(execute(task));
+                } catch (SQLException e) {
+                    logger.error("数据库操作失败", e);
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> T execute(SqlTask<T> task) throws SQLException {
+        SqlConnectionPool.PooledConnection connection = pool.borrow();
+        boolean broken = false;
+        try {
+            return task.run(connection);
+        } catch (SQLException e) {
+            // 连接已失效时丢弃，下次借用会重新建立
+            broken = isBroken(connection.getConnection());
+            throw e;
+        } finally {
+            pool.release(connection, broken);
+        }
+    }
+
+    private static boolean isBroken(Connection connection) {
+        try {
+            return connection.isClosed() || !connection.isValid(1);
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private interface SqlTask<T> {
+        T run(SqlConnectionPool.PooledConnection connection) throws SQLException;
+    }
+}
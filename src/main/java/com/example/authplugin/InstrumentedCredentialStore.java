@@ -0,0 +1,49 @@
+package com.example.authplugin;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 记录每次存储操作耗时的包装，耗时从调用开始到 future 完成，包括排队时间。
+ */
+public class InstrumentedCredentialStore implements CredentialStore {
+    private final CredentialStore delegate;
+    private final AuthMetrics metrics;
+
+    public InstrumentedCredentialStore(CredentialStore delegate, AuthMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void open() throws IOException {
+        delegate.open();
+    }
+
+    @Override
+    public CompletableFuture<Optional<Credential>> lookup(UUID uuid) {
+        return AuthMetrics.time(delegate.lookup(uuid), metrics.getStorageLookup());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> insert(Credential credential) {
+        return AuthMetrics.time(delegate.insert(credential), metrics.getStorageInsert());
+    }
+
+    @Override
+    public CompletableFuture<Void> update(Credential credential) {
+        return AuthMetrics.time(delegate.update(credential), metrics.getStorageUpdate());
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        return AuthMetrics.time(delegate.delete(uuid), metrics.getStorageDelete());
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.authplugin;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 只在当前代理内存中的会话存储，代理重启后会话失效。
+ */
+public class LocalSessionStore implements SessionStore {
+    private final Map<UUID, SessionRecord> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public CompletableFuture<Optional<SessionRecord>> lookup(UUID uuid) {
+        SessionRecord record = sessions.get(uuid);
+        if (record != null && record.isExpired(System.currentTimeMillis())) {
+            sessions.remove(uuid, record);
+            record = null;
+        }
+        return CompletableFuture.completedFuture(Optional.ofNullable(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> save(UUID uuid, SessionRecord record) {
+        sessions.put(uuid, record);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        sessions.remove(uuid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // 过期会话由 AuthManager 的时间轮定期清理
+    @Override
+    public void purgeExpired(long now) {
+        sessions.values().removeIf(existing -> existing.isExpired(now));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        sessions.clear();
+    }
+}
@@ -2,7 +2,6 @@ package com.example.authplugin;
 
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
-import net.kyori.adventure.text.Component;
 
 public class LoginCommand implements SimpleCommand {
     private final AuthManager authManager;
@@ -14,7 +13,7 @@ public class LoginCommand implements SimpleCommand {
     @Override
     public void execute(Invocation invocation) {
         if (!(invocation.source() instanceof Player)) {
-            invocation.source().sendMessage(Component.text("§c只有玩家才能使用此命令！"));
+            authManager.getMessages().send(invocation.source(), Message.NOT_PLAYER);
             return;
         }
 
@@ -22,12 +21,12 @@ public class LoginCommand implements SimpleCommand {
         String[] args = invocation.arguments();
 
         if (args.length != 1) {
-            player.sendMessage(Component.text("§c用法: /login <密码>"));
+            authManager.getMessages().send(player, Message.LOGIN_USAGE);
             return;
         }
 
         if (authManager.isAuthenticated(player)) {
-            player.sendMessage(Component.text("§c你已经登录了！"));
+            authManager.getMessages().send(player, Message.ALREADY_LOGGED_IN);
             return;
         }
 
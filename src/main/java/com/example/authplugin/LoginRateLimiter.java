@@ -0,0 +1,173 @@
+package com.example.authplugin;
+
+import java.net.InetAddress;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 登录失败次数限制，分别按账户、IP 和网段（IPv4 /24，IPv6 /64）在滑动窗口内计数。
+ * 每次登录先占用三个维度各一次机会，登录成功后退还 IP 和网段的计数并清零账户计数，
+ * 所以实际只有失败的尝试会被累计。计数表容量固定，换用户名轮番尝试不会让内存无限增长。
+ */
+public class LoginRateLimiter {
+    public enum Scope {
+        ACCOUNT, IP, SUBNET
+    }
+
+    private volatile Tables tables;
+
+    public LoginRateLimiter(Settings settings) {
+        this.tables = new Tables(settings, null);
+    }
+
+    /**
+     * 配置热更新。窗口长度或容量变化时重建计数表，已有的计数会被清空。
+     */
+    public void configure(Settings settings) {
+        tables = new Tables(settings, tables);
+    }
+
+    /**
+     * 占用一次登录机会。返回 null 表示允许，否则返回超出限制的维度。
+     */
+    public Scope tryAcquire(String username, InetAddress address, long now) {
+        Tables current = tables;
+        Settings settings = current.settings;
+        long accountKey = accountKey(username, current.salt);
+        if (!current.accounts.tryAcquire(accountKey, now, settings.accountLimit)) {
+            return Scope.ACCOUNT;
+        }
+        if (address == null) {
+            return null;
+        }
+        byte[] bytes = address.getAddress();
+        long ipKey = addressKey(bytes, bytes.length, current.salt);
+        if (!current.addresses.tryAcquire(ipKey, now, settings.ipLimit)) {
+            current.accounts.release(accountKey, now);
+            return Scope.IP;
+        }
+        long subnetKey = addressKey(bytes, bytes.length == 4 ? 3 : 8, current.salt);
+        if (!current.subnets.tryAcquire(subnetKey, now, settings.subnetLimit)) {
+            current.accounts.release(accountKey, now);
+            current.addresses.release(ipKey, now);
+            return Scope.SUBNET;
+        }
+        return null;
+    }
+
+    public void onSuccess(String username, InetAddress address, long now) {
+        Tables current = tables;
+        current.accounts.reset(accountKey(username, current.salt), now);
+        if (address != null) {
+            byte[] bytes = address.getAddress();
+            current.addresses.release(addressKey(bytes, bytes.length, current.salt), now);
+            current.subnets.release(addressKey(bytes, bytes.length == 4 ? 3 : 8, current.salt), now);
+        }
+    }
+
+    /**
+     * 退还 tryAcquire 占用的三个维度的机会，用于密码还没有校验就失败的尝试（例如哈希线程池已满）。
+     */
+    public void release(String username, InetAddress address, long now) {
+        Tables current = tables;
+        current.accounts.release(accountKey(username, current.salt), now);
+        if (address != null) {
+            byte[] bytes = address.getAddress();
+            current.addresses.release(addressKey(bytes, bytes.length, current.salt), now);
+            current.subnets.release(addressKey(bytes, bytes.length == 4 ? 3 : 8, current.salt), now);
+        }
+    }
+
+    public long getWindowMillis() {
+        return tables.accounts.getWindowMillis();
+    }
+
+    public int getTrackedCount(Scope scope, long now) {
+        Tables current = tables;
+        switch (scope) {
+            case ACCOUNT:
+                return current.accounts.size(now);
+            case IP:
+                return current.addresses.size(now);
+            default:
+                return current.subnets.size(now);
+        }
+    }
+
+    // 清理已经滑出窗口的计数，返回清理的条目数
+    public int purgeExpired(long now) {
+        Tables current = tables;
+        return current.accounts.purgeExpired(now) + current.addresses.purgeExpired(now)
+            + current.subnets.purgeExpired(now);
+    }
+
+    // 用户名不区分大小写，不创建新的字符串
+    private static long accountKey(String username, long salt) {
+        long hash = salt;
+        for (int i = 0; i < username.length(); i++) {
+            hash = (hash ^ Character.toLowerCase(username.charAt(i))) * 0x100000001B3L;
+        }
+        return nonZero(mix(hash));
+    }
+
+    private static long addressKey(byte[] bytes, int length, long salt) {
+        long hash = salt ^ length;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ (bytes[i] & 0xFF)) * 0x100000001B3L;
+        }
+        return nonZero(mix(hash));
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    // 0 在计数表中表示空槽
+    private static long nonZero(long key) {
+        return key == 0 ? 1 : key;
+    }
+
+    private static final class Tables {
+        private final Settings settings;
+        private final long salt;
+        private final SlidingWindowCounter accounts;
+        private final SlidingWindowCounter addresses;
+        private final SlidingWindowCounter subnets;
+
+        private Tables(Settings settings, Tables previous) {
+            this.settings = settings;
+            if (previous != null && previous.settings.windowMillis == settings.windowMillis
+                    && previous.settings.capacity == settings.capacity) {
+                this.salt = previous.salt;
+                this.accounts = previous.accounts;
+                this.addresses = previous.addresses;
+                this.subnets = previous.subnets;
+            } else {
+                // 随机种子，防止构造哈希冲突把别人的计数挤出表
+                this.salt = ThreadLocalRandom.current().nextLong();
+                this.accounts = new SlidingWindowCounter(settings.capacity, settings.windowMillis);
+                this.addresses = new SlidingWindowCounter(settings.capacity, settings.windowMillis);
+                this.subnets = new SlidingWindowCounter(settings.capacity, settings.windowMillis);
+            }
+        }
+    }
+
+    public static final class Settings {
+        private final long windowMillis;
+        private final int accountLimit;
+        private final int ipLimit;
+        private final int subnetLimit;
+        private final int capacity;
+
+        public Settings(long windowMillis, int accountLimit, int ipLimit, int subnetLimit, int capacity) {
+            this.windowMillis = Math.max(1000, windowMillis);
+            this.accountLimit = Math.max(1, accountLimit);
+            this.ipLimit = Math.max(1, ipLimit);
+            this.subnetLimit = Math.max(1, subnetLimit);
+            this.capacity = Math.max(1024, capacity);
+        }
+    }
+}
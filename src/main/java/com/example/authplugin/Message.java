@@ -0,0 +1,71 @@
+package com.example.authplugin;
+
+/**
+ * 发给玩家的消息。key 对应配置文件 messages 下的键，默认模板使用 § 颜色代码，
+ * 配置中也可以写 &amp; 颜色代码或 MiniMessage 标签；{名称} 形式的占位符在发送时替换。
+ */
+public enum Message {
+    NOT_PLAYER("not-player", "§c只有玩家才能使用此命令！"),
+    NO_PERMISSION("no-permission", "§c你没有权限使用此命令！"),
+    LOGIN_USAGE("login-usage", "§c用法: /login <密码>"),
+    REGISTER_USAGE("register-usage", "§c用法: /register <密码>"),
+    ALREADY_LOGGED_IN("already-logged-in", "§c你已经登录了！"),
+    ALREADY_REGISTERED("already-registered", "§c你已经注册过了！"),
+    WEAK_PASSWORD("weak-password", "§c密码必须至少包含6个字符，包括大小写字母和数字！"),
+    REGISTER_SUCCESS("register-success", "§a注册成功！"),
+    NOT_REGISTERED("not-registered", "§c你还没有注册！请使用 /register <密码> 注册"),
+    RATE_LIMITED("rate-limited", "§c登录尝试次数过多，请等待{minutes}分钟后再试", "minutes"),
+    WRONG_PASSWORD("wrong-password", "§c密码错误！"),
+    LOGIN_SUCCESS("login-success", "§a登录成功！"),
+    SERVER_BUSY("server-busy", "§c服务器繁忙，请稍后再试"),
+    INTERNAL_ERROR("internal-error", "§c发生内部错误，请联系管理员！"),
+    PREMIUM_NAME("premium-name",
+        "§e检测到此用户名为正版账号\n§e如果这是你的账号，请使用正版客户端登录\n§e否则请更换用户名后使用离线登录"),
+    LOGIN_PROMPT("login-prompt", "§e请使用 /login <密码> 登录"),
+    REGISTER_PROMPT("register-prompt", "§e请使用 /register <密码> 注册"),
+    REGISTER_HINT("register-hint", "§e如果没有账号，请使用 /register <密码> 注册"),
+    LOGIN_REQUIRED("login-required", "§c请先登录后才能进入其他服务器！\n§e使用 /login <密码> 登录"),
+    CAN_SWITCH_SERVER("can-switch-server", "§a你已经登录，可以切换到其他服务器了！"),
+    COMMAND_NEEDS_LOGIN("command-needs-login", "§c请先使用 /login <密码> 登录！"),
+    COMMAND_NEEDS_REGISTER("command-needs-register", "§c请先使用 /register <密码> 注册！"),
+    CHAT_NEEDS_LOGIN("chat-needs-login", "§c请先登录后再聊天！"),
+    LOGIN_TIMEOUT("login-timeout", "§c登录超时，请重新连接后尽快登录"),
+    WELCOME_PREMIUM("welcome-premium", "§a欢迎正版玩家 {player}", "player"),
+    SESSION_RESTORED("session-restored", "§a已恢复登录状态，欢迎回来 {player}", "player"),
+    ACCOUNT_LOAD_FAILED("account-load-failed", "§c无法加载账户信息，请稍后重试"),
+    CONNECTION_THROTTLED("connection-throttled", "§c服务器繁忙，请稍后再试"),
+    TOO_MANY_CONNECTIONS("too-many-connections", "§c来自你的 IP 的连接过多"),
+    DENY_OFFLINE("deny-offline", "§c对不起，该用户不允许离线登录！请联系管理员"),
+    DENY_ONLINE_MODE("deny-online-mode", "§c服务器已开启正版验证，请使用正版账户进入！"),
+    QUEUED("queued", "§e目标服务器繁忙，你当前排在第 {position} 位", "position"),
+    QUEUE_POSITION("queue-position", "§e你当前排在第 {position} 位，共 {total} 人", "position", "total"),
+    NO_DESTINATION("no-destination", "§c错误：找不到生存服务器，请联系管理员！"),
+    TRANSFERRING("transferring", "§a正在将你传送到生存服务器..."),
+    TRANSFER_FAILED("transfer-failed", "§c无法连接到生存服务器，请稍后重新登录或联系管理员！"),
+    TRANSFER_RETRY("transfer-retry", "§e连接生存服务器失败，{seconds} 秒后重试...", "seconds"),
+    RELOAD_SUCCESS("reload-success", "§a配置重载成功！"),
+    RELOAD_FAILED("reload-failed", "§c配置文件有错误，已保留当前配置，详情见控制台");
+
+    private final String key;
+    private final String defaultTemplate;
+    private final String[] placeholders;
+
+    Message(String key, String defaultTemplate, String... placeholders) {
+        this.key = key;
+        this.defaultTemplate = defaultTemplate;
+        this.placeholders = placeholders;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getDefaultTemplate() {
+        return defaultTemplate;
+    }
+
+    // 占位符名称，发送时按这个顺序传入取值
+    String[] getPlaceholders() {
+        return placeholders;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.Player;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家消息目录。每条模板在加载配置时解析一次成不可变的 Component，发送时直接复用，
+ * 带占位符的模板只重建包含占位符的那条路径。目录是 AuthConfig 快照的一部分，重载时随快照整体替换。
+ *
+ * 配置格式：messages.default-locale 指定默认语言，messages.&lt;语言&gt; 下按 Message 的 key 写模板，
+ * 例如 messages.en_us.login-prompt。玩家的语言先按完整的 en_us 查找，再按 en，最后使用默认语言；
+ * 默认语言缺少的消息使用内置文本。
+ */
+public final class MessageCatalog {
+    // 客户端可以上报任意语言，已解析的语言数量超过这个值后不再缓存，避免被刷爆
+    private static final int MAX_CACHED_LOCALES = 256;
+    private static final Message[] MESSAGES = Message.values();
+    private static final LegacyComponentSerializer LEGACY_SECTION = LegacyComponentSerializer.legacySection();
+    private static final LegacyComponentSerializer LEGACY_AMPERSAND = LegacyComponentSerializer.legacyAmpersand();
+
+    private final String defaultLocale;
+    private final Component[] defaults;
+    // 小写的语言标签（zh_cn、en）到模板数组，缺少的消息已用默认语言补齐
+    private final Map<String, Component[]> localized;
+    private final Map<Locale, Component[]> resolved = new ConcurrentHashMap<>();
+
+    private MessageCatalog(String defaultLocale, Component[] defaults, Map<String, Component[]> localized) {
+        this.defaultLocale = defaultLocale;
+        this.defaults = defaults;
+        this.localized = localized;
+    }
+
+    /**
+     * 只包含内置文本的目录。
+     */
+    public static MessageCatalog defaults() {
+        return parse(null, null);
+    }
+
+    /**
+     * 从配置中的 messages 节点生成目录。legacyDenyMessage 是旧版的 deny-message 配置，
+     * 默认语言没有单独配置 deny-offline 时使用它。
+     */
+    public static MessageCatalog parse(ConfigurationNode node, String legacyDenyMessage) {
+        String defaultLocale = "zh_cn";
+        Map<String, Map<String, String>> sections = new HashMap<>();
+        if (node != null && !node.virtual()) {
+            defaultLocale = normalize(node.node("default-locale").getString(defaultLocale));
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : node.childrenMap().entrySet()) {
+                ConfigurationNode section = entry.getValue();
+                if (!section.isMap()) {
+                    continue;
+                }
+                Map<String, String> templates = new HashMap<>();
+                for (Map.Entry<Object, ? extends ConfigurationNode> message : section.childrenMap().entrySet()) {
+                    String value = message.getValue().getString();
+                    if (value != null) {
+                        templates.put(String.valueOf(message.getKey()), value);
+                    }
+                }
+                sections.put(normalize(String.valueOf(entry.getKey())), templates);
+            }
+        }
+
+        Map<String, String> defaultSection = sections.remove(defaultLocale);
+        Component[] defaults = new Component[MESSAGES.length];
+        for (Message message : MESSAGES) {
+            String template = defaultSection == null ? null : defaultSection.get(message.getKey());
+            if (template == null && message == Message.DENY_OFFLINE) {
+                template = legacyDenyMessage;
+            }
+            defaults[message.ordinal()] = deserialize(template != null ? template : message.getDefaultTemplate());
+        }
+
+        Map<String, Component[]> localized = new HashMap<>();
+        for (Map.Entry<String, Map<String, String>> section : sections.entrySet()) {
+            Component[] components = defaults.clone();
+            for (Message message : MESSAGES) {
+                String template = section.getValue().get(message.getKey());
+                if (template != null) {
+                    components[message.ordinal()] = deserialize(template);
+                }
+            }
+            localized.put(section.getKey(), components);
+        }
+        return new MessageCatalog(defaultLocale, defaults,
+            localized.isEmpty() ? Collections.emptyMap() : localized);
+    }
+
+    public String getDefaultLocale() {
+        return defaultLocale;
+    }
+
+    /**
+     * 默认语言的消息，没有占位符时每次返回同一个对象。
+     */
+    public Component get(Message message) {
+        return defaults[message.ordinal()];
+    }
+
+    public Component get(Message message, Locale locale) {
+        return templatesFor(locale)[message.ordinal()];
+    }
+
+    public Component get(Message message, Locale locale, Object... values) {
+        return bind(templatesFor(locale)[message.ordinal()], message.getPlaceholders(), values);
+    }
+
+    /**
+     * 按接收者的语言发送消息。拒绝命令、拒绝聊天这类高频路径用这个重载，不会分配对象。
+     */
+    public void send(Audience audience, Message message) {
+        audience.sendMessage(get(message, localeOf(audience)));
+    }
+
+    /**
+     * 发送带占位符的消息，values 按 Message 声明的占位符顺序传入。
+     */
+    public void send(Audience audience, Message message, Object... values) {
+        audience.sendMessage(get(message, localeOf(audience), values));
+    }
+
+    private static Locale localeOf(Audience audience) {
+        return audience instanceof Player ? ((Player) audience).getEffectiveLocale() : null;
+    }
+
+    private Component[] templatesFor(Locale locale) {
+        if (locale == null || localized.isEmpty()) {
+            return defaults;
+        }
+        Component[] templates = resolved.get(locale);
+        if (templates != null) {
+            return templates;
+        }
+        templates = localized.get(locale.toString().toLowerCase(Locale.ROOT));
+        if (templates == null) {
+            templates = localized.get(locale.getLanguage().toLowerCase(Locale.ROOT));
+        }
+        if (templates == null) {
+            templates = defaults;
+        }
+        if (resolved.size() < MAX_CACHED_LOCALES) {
+            resolved.put(locale, templates);
+        }
+        return templates;
+    }
+
+    private static String normalize(String locale) {
+        return locale.trim().toLowerCase(Locale.ROOT).replace('-', '_');
+    }
+
+    /**
+     * 含 § 的按旧版颜色代码解析，含 &amp; 颜色代码的按 &amp; 格式解析，其余按 MiniMessage 解析。
+     * 占位符在解析后才替换，玩家名里的标签或颜色代码不会被当成格式。
+     */
+    static Component deserialize(String template) {
+        if (template.indexOf(LegacyComponentSerializer.SECTION_CHAR) >= 0) {
+            return LEGACY_SECTION.deserialize(template);
+        }
+        if (hasAmpersandCodes(template)) {
+            return LEGACY_AMPERSAND.deserialize(template);
+        }
+        return MiniMessage.miniMessage().deserialize(template);
+    }
+
+    private static boolean hasAmpersandCodes(String template) {
+        for (int i = template.indexOf('&'); i >= 0 && i + 1 < template.length(); i = template.indexOf('&', i + 1)) {
+            if ("0123456789abcdefklmnorx".indexOf(Character.toLowerCase(template.charAt(i + 1))) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把 {名称} 替换为对应的值。只复制内容里含有 { 的文本节点以及它们的上级节点，其余子树原样共享。
+     */
+    static Component bind(Component component, String[] names, Object[] values) {
+        if (names.length == 0) {
+            return component;
+        }
+        Component result = component;
+        if (component instanceof TextComponent) {
+            String content = ((TextComponent) component).content();
+            if (content.indexOf('{') >= 0) {
+                String replaced = substitute(content, names, values);
+                if (replaced != content) {
+                    result = ((TextComponent) component).content(replaced);
+                }
+            }
+        }
+
+        List<Component> children = component.children();
+        List<Component> boundChildren = null;
+        for (int i = 0; i < children.size(); i++) {
+            Component child = children.get(i);
+            Component bound = bind(child, names, values);
+            if (bound != child && boundChildren == null) {
+                boundChildren = new ArrayList<>(children);
+            }
+            if (boundChildren != null) {
+                boundChildren.set(i, bound);
+            }
+        }
+        return boundChildren == null ? result : result.children(boundChildren);
+    }
+
+    // 没有可替换的占位符时返回原字符串
+    private static String substitute(String content, String[] names, Object[] values) {
+        StringBuilder builder = null;
+        int copied = 0;
+        int open = content.indexOf('{');
+        while (open >= 0) {
+            int close = content.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            int index = indexOf(names, content, open + 1, close);
+            if (index >= 0 && index < values.length) {
+                if (builder == null) {
+                    builder = new StringBuilder(content.length() + 16);
+                }
+                builder.append(content, copied, open).append(values[index]);
+                copied = close + 1;
+                open = content.indexOf('{', copied);
+            } else {
+                open = content.indexOf('{', open + 1);
+            }
+        }
+        if (builder == null) {
+            return content;
+        }
+        return builder.append(content, copied, content.length()).toString();
+    }
+
+    private static int indexOf(String[] names, String content, int start, int end) {
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (name.length() == end - start && content.regionMatches(start, name, 0, name.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
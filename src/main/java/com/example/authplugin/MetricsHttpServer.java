@@ -0,0 +1,53 @@
+package com.example.authplugin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * 在本地端口上提供 Prometheus 文本格式的 /metrics。默认只监听 127.0.0.1，
+ * 由同机的采集器或反向代理读取。
+ */
+public class MetricsHttpServer {
+    private final HttpServer server;
+
+    public MetricsHttpServer(String bindAddress, int port, AuthMetrics metrics, Logger logger) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                respond(exchange, metrics.toPrometheus());
+            } catch (RuntimeException e) {
+                logger.warn("无法导出监控数据: " + e.getMessage());
+                exchange.sendResponseHeaders(500, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-metrics");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        logger.info("监控数据地址: http://" + bindAddress + ":" + port + "/metrics");
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 查询用户名对应的正版 UUID。离线玩家需要登录时由 AuthManager.handlePlayerJoin 在后台调用，
+ * 用户名属于正版账号时提醒玩家，不影响登录流程。
+ * 结果按正/负两种 TTL 缓存；同一用户名的并发查询合并为一次请求；
+ * 单个查询先进入 ProfileLookupBatcher 攒批，再和批量查询一样走批量接口；
+ * 收到 429 后暂停请求并指数退避。
+ * 缓存定期写入 PremiumStatusStore，启动时在后台加载；经常用到的条目在过期前自动刷新，
+ * Mojang 不可用时使用不超过 max-stale 的旧结果。
+ */
+public class MojangProfileResolver {
+    // 批量接口每次最多查询的用户名数
+    public static final int BULK_LIMIT = 10;
+    private static final Pattern PROFILE = Pattern.compile("\\{[^{}]*}");
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-fA-F]{32})\"");
+    private static final Pattern NAME = Pattern.compile("\"name\"\\s*:\\s*\"([^\"]+)\"");
+    private static final long MIN_BACKOFF = 1000;
+    private static final long MAX_BACKOFF = 60000;
+    private static final long MAINTENANCE_INTERVAL = 30000;
+    // 每轮最多刷新的条目数
+    private static final int REFRESH_LIMIT = 100;
+
+    private final Logger logger;
+    private final ExecutorService executor;
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Optional<UUID>>> inFlight = new ConcurrentHashMap<>();
+    private final ProfileLookupBatcher batcher;
+    private final PremiumStatusStore store;
+    private final CompletableFuture<Void> loaded;
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean dirty;
+    private volatile Settings settings;
+    private volatile long backoffUntil;
+    private long backoff = MIN_BACKOFF;
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+
+    public MojangProfileResolver(Logger logger, Settings settings, PremiumStatusStore store) {
+        this.logger = logger;
+        this.store = store;
+        this.settings = settings;
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(settings.threads, settings.threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "auth-plugin-mojang-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+        this.batcher = new ProfileLookupBatcher(this::fetchBulk, settings.batchWindowMillis, settings.batchSize);
+
+        // 启动时不阻塞，加载完成前到达的查询会等待加载结束
+        this.loaded = CompletableFuture.runAsync(this::loadPersisted, executor);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-mojang-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL,
+            TimeUnit.MILLISECONDS);
+    }
+
+    public void setSettings(Settings settings) {
+        this.settings = settings;
+        batcher.configure(settings.batchWindowMillis, settings.batchSize);
+    }
+
+    public ProfileLookupBatcher getBatcher() {
+        return batcher;
+    }
+
+    /**
+     * 返回正版 UUID；不是正版用户名时返回 Optional.empty()。
+     * 请求失败或正在退避时 future 以异常结束，失败结果不会被缓存。
+     */
+    public CompletableFuture<Optional<UUID>> lookup(String username) {
+        if (!loaded.isDone()) {
+            return loaded.thenCompose(ignored -> lookup(username));
+        }
+        String key = username.toLowerCase(Locale.ROOT);
+        Optional<UUID> cached = getCached(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<Optional<UUID>> created = new CompletableFuture<>();
+        CompletableFuture<Optional<UUID>> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        // 与同一时间窗口内的其他查询合并成一次批量请求
+        batcher.enqueue(key, created);
+        return created;
+    }
+
+    /**
+     * 批量查询。已缓存或已有请求在途的用户名直接复用，其余的按 BULK_LIMIT 分批走批量接口。
+     */
+    public CompletableFuture<Map<String, Optional<UUID>>> lookupAll(Collection<String> usernames) {
+        if (!loaded.isDone()) {
+            return loaded.thenCompose(ignored -> lookupAll(usernames));
+        }
+        Map<String, CompletableFuture<Optional<UUID>>> futures = new HashMap<>();
+        List<String> owned = new ArrayList<>();
+        for (String username : usernames) {
+            String key = username.toLowerCase(Locale.ROOT);
+            if (futures.containsKey(key)) {
+                continue;
+            }
+            Optional<UUID> cached = getCached(key);
+            if (cached != null) {
+                futures.put(key, CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            CompletableFuture<Optional<UUID>> created = new CompletableFuture<>();
+            CompletableFuture<Optional<UUID>> existing = inFlight.putIfAbsent(key, created);
+            futures.put(key, existing != null ? existing : created);
+            if (existing == null) {
+                owned.add(key);
+            }
+        }
+
+        for (int i = 0; i < owned.size(); i += BULK_LIMIT) {
+            List<String> batch = owned.subList(i, Math.min(owned.size(), i + BULK_LIMIT));
+            fetchBulk(batch);
+        }
+
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            Map<String, Optional<UUID>> results = new HashMap<>();
+            for (Map.Entry<String, CompletableFuture<Optional<UUID>>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().join());
+            }
+            return results;
+        });
+    }
+
+    /**
+     * 对一批已经登记在 inFlight 中的用户名（小写）发起一次批量请求，并完成它们的 future。
+     */
+    private void fetchBulk(List<String> keys) {
+        List<String> batch = new ArrayList<>(keys);
+        submit(() -> {
+            try {
+                Map<String, UUID> found = fetchBulkNow(batch);
+                for (String key : batch) {
+                    complete(key, Optional.ofNullable(found.get(key)));
+                }
+            } catch (IOException | RuntimeException e) {
+                for (String key : batch) {
+                    fail(key, e);
+                }
+            }
+        }, batch.toArray(new String[0]));
+    }
+
+    // 每次批量 HTTP 请求的耗时，不含排队和退避
+    public LatencyHistogram getRequestLatency() {
+        return requestLatency;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    public void shutdown() {
+        maintenance.shutdownNow();
+        batcher.shutdown();
+        executor.shutdownNow();
+        save();
+    }
+
+    private Optional<UUID> getCached(String key) {
+        CacheEntry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.checkedAt + ttl(entry.premiumId) < now) {
+            // 过期条目保留下来，Mojang 不可用时作为备用结果
+            return null;
+        }
+        entry.lastAccess = now;
+        return entry.premiumId;
+    }
+
+    private long ttl(Optional<UUID> premiumId) {
+        Settings current = settings;
+        return premiumId.isPresent() ? current.positiveTtlMillis : current.negativeTtlMillis;
+    }
+
+    private void complete(String key, Optional<UUID> result) {
+        put(key, result, System.currentTimeMillis());
+        CompletableFuture<Optional<UUID>> future = inFlight.remove(key);
+        if (future != null) {
+            future.complete(result);
+        }
+    }
+
+    private void put(String key, Optional<UUID> result, long checkedAt) {
+        if (cache.size() >= settings.cacheSize) {
+            evict();
+        }
+        cache.put(key, new CacheEntry(result, checkedAt));
+        dirty = true;
+    }
+
+    private void fail(String key, Throwable error) {
+        CompletableFuture<Optional<UUID>> future = inFlight.remove(key);
+        if (future == null) {
+            return;
+        }
+        CacheEntry stale = cache.get(key);
+        if (stale != null && stale.checkedAt + settings.maxStaleMillis >= System.currentTimeMillis()) {
+            future.complete(stale.premiumId);
+        } else {
+            future.completeExceptionally(error);
+        }
+    }
+
+    // 先清理超过 max-stale 的条目，仍然超出上限时再任意淘汰一部分
+    private void evict() {
+        long oldest = System.currentTimeMillis() - settings.maxStaleMillis;
+        cache.values().removeIf(entry -> entry.checkedAt < oldest);
+        int excess = cache.size() - settings.cacheSize * 9 / 10;
+        Iterator<CacheEntry> iterator = cache.values().iterator();
+        while (excess-- > 0 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private void loadPersisted() {
+        long oldest = System.currentTimeMillis() - settings.maxStaleMillis;
+        int count = 0;
+        for (Map.Entry<String, PremiumStatusStore.Entry> entry : store.load().entrySet()) {
+            PremiumStatusStore.Entry persisted = entry.getValue();
+            if (persisted.getCheckedAt() >= oldest && count < settings.cacheSize) {
+                cache.putIfAbsent(entry.getKey(), new CacheEntry(persisted.getPremiumId(), persisted.getCheckedAt()));
+                count++;
+            }
+        }
+        if (count > 0) {
+            logger.info("已加载 " + count + " 条正版查询缓存");
+        }
+    }
+
+    private void maintain() {
+        try {
+            refreshExpiring();
+            if (dirty) {
+                save();
+            }
+        } catch (RuntimeException e) {
+            logger.error("维护正版查询缓存时发生错误", e);
+        }
+    }
+
+    // 在最近用到、即将过期的条目过期前重新查询，热点用户名不会出现缓存未命中
+    private void refreshExpiring() {
+        long now = System.currentTimeMillis();
+        long horizon = now + MAINTENANCE_INTERVAL * 2;
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, CacheEntry> entry : cache.entrySet()) {
+            CacheEntry cached = entry.getValue();
+            long expiresAt = cached.checkedAt + ttl(cached.premiumId);
+            if (expiresAt > now && expiresAt <= horizon && cached.lastAccess > cached.checkedAt
+                && inFlight.putIfAbsent(entry.getKey(), new CompletableFuture<>()) == null) {
+                keys.add(entry.getKey());
+                if (keys.size() >= REFRESH_LIMIT) {
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < keys.size(); i += BULK_LIMIT) {
+            fetchBulk(keys.subList(i, Math.min(keys.size(), i + BULK_LIMIT)));
+        }
+    }
+
+    private synchronized void save() {
+        dirty = false;
+        Map<String, PremiumStatusStore.Entry> snapshot = new HashMap<>();
+        long oldest = System.currentTimeMillis() - settings.maxStaleMillis;
+        for (Map.Entry<String, CacheEntry> entry : cache.entrySet()) {
+            CacheEntry cached = entry.getValue();
+            if (cached.checkedAt >= oldest) {
+                snapshot.put(entry.getKey(), new PremiumStatusStore.Entry(cached.premiumId, cached.checkedAt));
+            }
+        }
+        try {
+            store.save(snapshot);
+        } catch (IOException e) {
+            dirty = true;
+            logger.error("无法保存正版查询缓存", e);
+        }
+    }
+
+    private void submit(Runnable task, String... keys) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            for (String key : keys) {
+                fail(key, e);
+            }
+        }
+    }
+
+    private Map<String, UUID> fetchBulkNow(List<String> keys) throws IOException {
+        checkBackoff();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < keys.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append('"').append(keys.get(i).replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        body.append(']');
+
+        long start = System.nanoTime();
+        HttpURLConnection connection = open(new URL(settings.apiUrl + "/profiles/minecraft"));
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode != 200) {
+                throw failure(connection, responseCode);
+            }
+            resetBackoff();
+
+            // 响应中只包含正版用户名，未出现的都不是正版
+            Map<String, UUID> found = new HashMap<>();
+            Matcher profiles = PROFILE.matcher(read(connection.getInputStream()));
+            while (profiles.find()) {
+                Matcher id = ID.matcher(profiles.group());
+                Matcher name = NAME.matcher(profiles.group());
+                if (id.find() && name.find()) {
+                    found.put(name.group(1).toLowerCase(Locale.ROOT), parseId(id.group(1)));
+                }
+            }
+            return found;
+        } finally {
+            connection.disconnect();
+            requestLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private HttpURLConnection open(URL url) throws IOException {
+        Settings current = settings;
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(current.timeoutMillis);
+        connection.setReadTimeout(current.timeoutMillis);
+        return connection;
+    }
+
+    private void checkBackoff() throws IOException {
+        if (System.currentTimeMillis() < backoffUntil) {
+            throw new IOException("Mojang API 限流中，暂停请求");
+        }
+    }
+
+    private synchronized void resetBackoff() {
+        backoff = MIN_BACKOFF;
+    }
+
+    private IOException failure(HttpURLConnection connection, int responseCode) {
+        if (responseCode == 429) {
+            long delay;
+            synchronized (this) {
+                // 优先使用 Retry-After，否则指数退避
+                long retryAfter = connection.getHeaderFieldLong("Retry-After", -1) * 1000;
+                delay = retryAfter > 0 ? retryAfter : backoff;
+                backoff = Math.min(MAX_BACKOFF, backoff * 2);
+                backoffUntil = System.currentTimeMillis() + delay;
+            }
+            logger.warn("Mojang API 返回 429，暂停请求 " + delay + " 毫秒");
+            return new IOException("Mojang API 限流");
+        }
+        return new IOException("Mojang API 返回状态码 " + responseCode);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static UUID parseId(String hex) {
+        return new UUID(Long.parseUnsignedLong(hex.substring(0, 16), 16),
+            Long.parseUnsignedLong(hex.substring(16), 16));
+    }
+
+    private static final class CacheEntry {
+        private final Optional<UUID> premiumId;
+        private final long checkedAt;
+        private volatile long lastAccess;
+
+        private CacheEntry(Optional<UUID> premiumId, long checkedAt) {
+            this.premiumId = premiumId;
+            this.checkedAt = checkedAt;
+        }
+    }
+
+    public static final class Settings {
+        private final String apiUrl;
+        private final long positiveTtlMillis;
+        private final long negativeTtlMillis;
+        private final int cacheSize;
+        private final int timeoutMillis;
+        private final int threads;
+        private final long batchWindowMillis;
+        private final int batchSize;
+        private final long maxStaleMillis;
+
+        public Settings(String apiUrl, long positiveTtlMillis, long negativeTtlMillis, long maxStaleMillis,
+                        int cacheSize, int timeoutMillis, int threads, long batchWindowMillis, int batchSize) {
+            // 去掉末尾的斜杠，便于拼接路径
+            this.apiUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+            this.positiveTtlMillis = positiveTtlMillis;
+            this.negativeTtlMillis = negativeTtlMillis;
+            this.maxStaleMillis = Math.max(maxStaleMillis, Math.max(positiveTtlMillis, negativeTtlMillis));
+            this.cacheSize = Math.max(1, cacheSize);
+            this.timeoutMillis = timeoutMillis;
+            this.threads = Math.max(1, threads);
+            this.batchWindowMillis = batchWindowMillis;
+            this.batchSize = batchSize;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.authplugin;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 离线玩家白名单。普通条目按小写存入哈希集合；以 * 结尾的条目是前缀规则，
+ * 编译成只包含用户名合法字符（字母、数字、下划线）的字典树，单独的 * 表示允许所有人。
+ * 查询耗时只与用户名长度有关，与白名单大小无关。实例不可变，重载时整体替换。
+ */
+public final class OfflineWhitelist {
+    private static final int ALPHABET = 37;
+
+    private final Set<String> entries;
+    private final Set<String> exact;
+    private final Set<String> prefixes;
+    private final Node root;
+    private final boolean allowAll;
+
+    private OfflineWhitelist(Set<String> entries, Set<String> exact, Set<String> prefixes, Node root) {
+        this.entries = entries;
+        this.exact = exact;
+        this.prefixes = prefixes;
+        this.root = root;
+        this.allowAll = prefixes.contains("");
+    }
+
+    public static OfflineWhitelist of(List<String> rawEntries) {
+        return empty().update(rawEntries).getWhitelist();
+    }
+
+    public static OfflineWhitelist empty() {
+        return new OfflineWhitelist(Collections.emptySet(), Collections.emptySet(), Collections.emptySet(), new Node());
+    }
+
+    public boolean contains(String username) {
+        if (allowAll) {
+            return true;
+        }
+        if (root.children != null && matchesPrefix(username)) {
+            return true;
+        }
+        return exact.contains(username.toLowerCase(Locale.ROOT));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 根据新的配置生成白名单，只处理新增和删除的条目；前缀规则没有变化时直接复用原来的字典树。
+     */
+    public Update update(List<String> rawEntries) {
+        Set<String> next = new LinkedHashSet<>();
+        for (String raw : rawEntries) {
+            String entry = raw.trim().toLowerCase(Locale.ROOT);
+            if (!entry.isEmpty()) {
+                next.add(entry);
+            }
+        }
+
+        Set<String> added = new LinkedHashSet<>();
+        for (String entry : next) {
+            if (!entries.contains(entry)) {
+                added.add(entry);
+            }
+        }
+        Set<String> removed = new LinkedHashSet<>();
+        for (String entry : entries) {
+            if (!next.contains(entry)) {
+                removed.add(entry);
+            }
+        }
+        if (added.isEmpty() && removed.isEmpty()) {
+            return new Update(this, added, removed);
+        }
+
+        Set<String> nextExact = new HashSet<>(exact);
+        Set<String> nextPrefixes = new HashSet<>(prefixes);
+        boolean prefixesChanged = false;
+        for (String entry : removed) {
+            if (isPrefix(entry)) {
+                prefixesChanged |= nextPrefixes.remove(entry.substring(0, entry.length() - 1));
+            } else {
+                nextExact.remove(entry);
+            }
+        }
+        for (String entry : added) {
+            if (isPrefix(entry)) {
+                prefixesChanged |= nextPrefixes.add(entry.substring(0, entry.length() - 1));
+            } else {
+                nextExact.add(entry);
+            }
+        }
+        Node nextRoot = prefixesChanged ? compile(nextPrefixes) : root;
+        return new Update(new OfflineWhitelist(Collections.unmodifiableSet(next),
+            nextExact, nextPrefixes, nextRoot), added, removed);
+    }
+
+    private boolean matchesPrefix(String username) {
+        Node node = root;
+        for (int i = 0; i < username.length(); i++) {
+            int index = indexOf(username.charAt(i));
+            if (index < 0 || node.children == null || (node = node.children[index]) == null) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isPrefix(String entry) {
+        return entry.endsWith("*");
+    }
+
+    // 含有用户名不允许字符的前缀永远不会匹配，直接忽略
+    private static Node compile(Set<String> prefixes) {
+        Node root = new Node();
+        for (String prefix : prefixes) {
+            Node node = root;
+            boolean valid = true;
+            for (int i = 0; i < prefix.length(); i++) {
+                int index = indexOf(prefix.charAt(i));
+                if (index < 0) {
+                    valid = false;
+                    break;
+                }
+                if (node.children == null) {
+                    node.children = new Node[ALPHABET];
+                }
+                if (node.children[index] == null) {
+                    node.children[index] = new Node();
+                }
+                node = node.children[index];
+            }
+            if (valid && !prefix.isEmpty()) {
+                node.terminal = true;
+            }
+        }
+        return root;
+    }
+
+    // 字母不区分大小写映射到 0-25，数字映射到 26-35，下划线为 36，其余字符返回 -1
+    private static int indexOf(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        if (c >= '0' && c <= '9') {
+            return 26 + c - '0';
+        }
+        return c == '_' ? 36 : -1;
+    }
+
+    private static final class Node {
+        private Node[] children;
+        private boolean terminal;
+    }
+
+    public static final class Update {
+        private final OfflineWhitelist whitelist;
+        private final Set<String> added;
+        private final Set<String> removed;
+
+        private Update(OfflineWhitelist whitelist, Set<String> added, Set<String> removed) {
+            this.whitelist = whitelist;
+            this.added = added;
+            this.removed = removed;
+        }
+
+        public OfflineWhitelist getWhitelist() {
+            return whitelist;
+        }
+
+        public Set<String> getAdded() {
+            return added;
+        }
+
+        public Set<String> getRemoved() {
+            return removed;
+        }
+    }
+}
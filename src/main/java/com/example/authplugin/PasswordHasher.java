@@ -0,0 +1,16 @@
+package com.example.authplugin;
+
+/**
+ * 密码哈希算法。编码后的字符串自带算法标识和参数，可以判断是否需要按当前配置重新哈希。
+ */
+public interface PasswordHasher {
+    String hash(String password);
+
+    boolean verify(String password, String encoded);
+
+    // 该字符串是否由本算法生成
+    boolean supports(String encoded);
+
+    // 参数与当前配置不同时需要重新哈希
+    boolean needsRehash(String encoded);
+}
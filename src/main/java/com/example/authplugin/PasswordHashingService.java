@@ -0,0 +1,123 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 在独立的有界线程池上计算密码哈希。线程数按 CPU 核心数设置，队列满时直接拒绝，
+ * 由调用方提示玩家稍后重试，避免登录高峰时哈希任务无限堆积。
+ */
+public class PasswordHashingService {
+    private final ThreadPoolExecutor executor;
+    private volatile PasswordHasher[] hashers;
+
+    public PasswordHashingService(PasswordHasher hasher, int threads, int queueSize) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, queueSize)), runnable -> {
+                Thread thread = new Thread(runnable, "auth-plugin-hash-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+        setHasher(hasher);
+    }
+
+    public static PasswordHasher createHasher(String algorithm, int pbkdf2Iterations, int bcryptCost,
+                                              int argon2MemoryKib, int argon2Iterations, int argon2Parallelism,
+                                              Logger logger) {
+        // 按 Locale.ROOT 转换，土耳其语等环境下 "ARGON2ID" 也能匹配
+        switch (algorithm.toLowerCase(Locale.ROOT)) {
+            case "bcrypt":
+                return new BCryptPasswordHasher(bcryptCost);
+            case "argon2":
+            case "argon2id":
+                return new Argon2PasswordHasher(argon2MemoryKib, argon2Iterations, argon2Parallelism);
+            case "pbkdf2":
+                return new Pbkdf2PasswordHasher(pbkdf2Iterations);
+            default:
+                logger.warn("未知的密码哈希算法 \"" + algorithm + "\"，新密码将使用 pbkdf2");
+                return new Pbkdf2PasswordHasher(pbkdf2Iterations);
+        }
+    }
+
+    /**
+     * 切换新密码使用的算法。旧算法生成的哈希仍然可以校验，并会在下次登录时升级。
+     */
+    public void setHasher(PasswordHasher hasher) {
+        this.hashers = new PasswordHasher[] {
+            hasher,
+            new Pbkdf2PasswordHasher(1),
+            new BCryptPasswordHasher(4),
+            new Argon2PasswordHasher(8, 1, 1)
+        };
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public CompletableFuture<String> hash(String password) {
+        PasswordHasher hasher = hashers[0];
+        return submit(() -> hasher.hash(password));
+    }
+
+    public CompletableFuture<Verification> verify(String password, String encoded) {
+        PasswordHasher[] current = hashers;
+        for (PasswordHasher hasher : current) {
+            if (hasher.supports(encoded)) {
+                // 算法不同或参数与当前配置不一致时都需要升级
+                boolean rehash = hasher != current[0] || hasher.needsRehash(encoded);
+                return submit(() -> new Verification(hasher.verify(password, encoded), rehash));
+            }
+        }
+
+        // 旧版明文密码：按固定时间比较，匹配后需要升级为哈希
+        boolean matched = MessageDigest.isEqual(
+            password.getBytes(StandardCharsets.UTF_8), encoded.getBytes(StandardCharsets.UTF_8));
+        return CompletableFuture.completedFuture(new Verification(matched, true));
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    public static final class Verification {
+        private final boolean matched;
+        private final boolean needsRehash;
+
+        private Verification(boolean matched, boolean needsRehash) {
+            this.matched = matched;
+            this.needsRehash = needsRehash;
+        }
+
+        public boolean isMatched() {
+            return matched;
+        }
+
+        public boolean needsRehash() {
+            return matched && needsRehash;
+        }
+    }
+}
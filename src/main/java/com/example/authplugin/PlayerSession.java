@@ -0,0 +1,84 @@
+package com.example.authplugin;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 单个玩家的登录状态和账户缓存。登录失败次数由 {@link LoginRateLimiter} 统一限制，
+ * 会话只在玩家在线期间存在。
+ */
+public final class PlayerSession {
+    private final UUID uniqueId;
+    private volatile boolean authenticated;
+    // null 表示账户信息尚未加载，Optional.empty() 表示未注册
+    private volatile Optional<Credential> credential;
+    // 登录期限和提醒，登录成功或断线时取消
+    private volatile TimingWheel.Timeout loginTimeout;
+    // 玩家在代理内的登录等待区时，登录成功后让玩家离开等待区，只执行一次
+    private final AtomicReference<Runnable> limboRelease = new AtomicReference<>();
+
+    public PlayerSession(UUID uniqueId) {
+        this.uniqueId = uniqueId;
+    }
+
+    public UUID getUniqueId() {
+        return uniqueId;
+    }
+
+    public boolean isAuthenticated() {
+        return authenticated;
+    }
+
+    public Optional<Credential> getCredential() {
+        return credential;
+    }
+
+    public void setCredential(Optional<Credential> credential) {
+        this.credential = credential;
+    }
+
+    public boolean isRegistered() {
+        Optional<Credential> loaded = credential;
+        return loaded != null && loaded.isPresent();
+    }
+
+    public void markAuthenticated() {
+        authenticated = true;
+        cancelLoginTimeout();
+    }
+
+    public void setLoginTimeout(TimingWheel.Timeout timeout) {
+        this.loginTimeout = timeout;
+    }
+
+    public void setLimboRelease(Runnable release) {
+        limboRelease.set(release);
+    }
+
+    // 玩家在登录等待区时让其离开并返回 true，否则返回 false
+    public boolean releaseLimbo() {
+        Runnable release = limboRelease.getAndSet(null);
+        if (release == null) {
+            return false;
+        }
+        release.run();
+        return true;
+    }
+
+    private void cancelLoginTimeout() {
+        TimingWheel.Timeout timeout = loginTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+            loginTimeout = null;
+        }
+    }
+
+    // 断线时清除登录状态和账户缓存
+    public void logout() {
+        authenticated = false;
+        credential = null;
+        limboRelease.set(null);
+        cancelLoginTimeout();
+    }
+}
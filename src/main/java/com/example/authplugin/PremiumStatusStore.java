@@ -0,0 +1,121 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 正版查询结果的本地缓存文件，代理重启后仍然可用：启动时在后台加载，重启后离线玩家登录时的正版查询直接命中缓存。
+ * MojangProfileResolver 只在缓存有变化时重写文件。
+ * 格式：[魔数][条目数]，每条为 [用户名长度][用户名][是否正版][UUID（仅正版）][查询时间]。
+ */
+public class PremiumStatusStore {
+    private static final int MAGIC = 0x50534331; // "PSC1"
+
+    private final File file;
+    private final Logger logger;
+
+    public PremiumStatusStore(File file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    public Map<String, Entry> load() {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!file.exists()) {
+            return entries;
+        }
+
+        // 一次读入 ByteBuffer 后直接解析；不用内存映射，避免 Windows 上映射未释放时无法替换文件
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满为止
+            }
+            buffer.flip();
+            if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+                logger.warn("正版缓存文件格式不正确，已忽略");
+                return entries;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[buffer.get() & 0xFF];
+                buffer.get(name);
+                boolean premium = buffer.get() != 0;
+                Optional<UUID> premiumId = premium
+                    ? Optional.of(new UUID(buffer.getLong(), buffer.getLong()))
+                    : Optional.empty();
+                long checkedAt = buffer.getLong();
+                entries.put(new String(name, StandardCharsets.UTF_8), new Entry(premiumId, checkedAt));
+            }
+        } catch (BufferUnderflowException e) {
+            logger.warn("正版缓存文件不完整，已读取 " + entries.size() + " 条");
+        } catch (IOException e) {
+            logger.error("无法读取正版缓存文件", e);
+        }
+        return entries;
+    }
+
+    public void save(Map<String, Entry> entries) throws IOException {
+        File tempFile = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(tempFile);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+            out.writeInt(MAGIC);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(name.length);
+                out.write(name, 0, name.length);
+                Optional<UUID> premiumId = entry.getValue().premiumId;
+                out.writeBoolean(premiumId.isPresent());
+                if (premiumId.isPresent()) {
+                    out.writeLong(premiumId.get().getMostSignificantBits());
+                    out.writeLong(premiumId.get().getLeastSignificantBits());
+                }
+                out.writeLong(entry.getValue().checkedAt);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        try {
+            Files.move(tempFile.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    public static final class Entry {
+        private final Optional<UUID> premiumId;
+        private final long checkedAt;
+
+        public Entry(Optional<UUID> premiumId, long checkedAt) {
+            this.premiumId = premiumId;
+            this.checkedAt = checkedAt;
+        }
+
+        public Optional<UUID> getPremiumId() {
+            return premiumId;
+        }
+
+        public long getCheckedAt() {
+            return checkedAt;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.authplugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 把短时间内的单个用户名查询攒成一批。第一个查询到达后最多等待 flushWindow 毫秒，
+ * 或者攒够 maxBatchSize 个用户名时立即发出，一次批量请求的结果再分发给各自的 future。
+ */
+public class ProfileLookupBatcher {
+    private final Consumer<List<String>> flushTarget;
+    private final ScheduledExecutorService scheduler;
+    private final Object lock = new Object();
+    private List<String> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private volatile long flushWindowMillis;
+    private volatile int maxBatchSize;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchedNames = new LongAdder();
+    // 从入队到得到结果的延迟，包括攒批等待和批量请求本身
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    public ProfileLookupBatcher(Consumer<List<String>> flushTarget, long flushWindowMillis, int maxBatchSize) {
+        this.flushTarget = flushTarget;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-mojang-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        configure(flushWindowMillis, maxBatchSize);
+    }
+
+    public void configure(long flushWindowMillis, int maxBatchSize) {
+        this.flushWindowMillis = Math.max(0, flushWindowMillis);
+        this.maxBatchSize = Math.max(1, Math.min(MojangProfileResolver.BULK_LIMIT, maxBatchSize));
+    }
+
+    /**
+     * 加入一个待查询的用户名（小写），result 完成时记录从入队到得到结果的延迟。
+     */
+    public void enqueue(String key, CompletableFuture<?> result) {
+        long start = System.nanoTime();
+        result.whenComplete((value, error) -> latency.record(System.nanoTime() - start));
+
+        List<String> ready = null;
+        synchronized (lock) {
+            pending.add(key);
+            if (pending.size() >= maxBatchSize) {
+                ready = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = scheduler.schedule(this::flush, flushWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            dispatch(ready);
+        }
+    }
+
+    public void flush() {
+        List<String> ready;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                scheduledFlush = null;
+                return;
+            }
+            ready = takePending();
+        }
+        dispatch(ready);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        flush();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    // 平均批大小为 getBatchedNameCount() / getBatchCount()
+    public long getBatchedNameCount() {
+        return batchedNames.sum();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // 调用方必须持有 lock
+    private List<String> takePending() {
+        List<String> ready = pending;
+        pending = new ArrayList<>(maxBatchSize);
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return ready;
+    }
+
+    private void dispatch(List<String> ready) {
+        batches.increment();
+        batchedNames.add(ready.size());
+        flushTarget.accept(ready);
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.authplugin;
+
+import org.slf4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 基于 Redis 协议（RESP）的会话存储，多个代理节点共享同一份会话。
+ * 只用到 GET、SET PX 和 DEL，客户端直接实现在这里，不引入额外依赖；
+ * 过期由 Redis 的 PX 参数负责。
+ */
+public class RedisSessionStore implements SessionStore {
+    private final String host;
+    private final int port;
+    private final String password;
+    private final int database;
+    private final String keyPrefix;
+    private final int timeoutMillis;
+    private final Logger logger;
+    private final int maxConnections;
+    private final BlockingQueue<RespConnection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private final ExecutorService executor;
+
+    public RedisSessionStore(String host, int port, String password, int database, String keyPrefix,
+                             int timeoutMillis, int poolSize, Logger logger) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.database = database;
+        this.keyPrefix = keyPrefix;
+        this.timeoutMillis = timeoutMillis;
+        this.logger = logger;
+        this.maxConnections = Math.max(1, poolSize);
+        this.idle = new ArrayBlockingQueue<>(maxConnections);
+        // 线程数与连接数相同，命令不会在连接池上排队
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConnections, runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-redis-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Optional<SessionRecord>> lookup(UUID uuid) {
+        return submit(connection -> {
+            Object value = connection.command("GET", keyPrefix + uuid);
+            if (!(value instanceof String)) {
+                return Optional.<SessionRecord>empty();
+            }
+            SessionRecord record = SessionRecord.decode((String) value);
+            if (record == null || record.isExpired(System.currentTimeMillis())) {
+                return Optional.<SessionRecord>empty();
+            }
+            return Optional.of(record);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> save(UUID uuid, SessionRecord record) {
+        return submit(connection -> {
+            long ttl = record.getExpiresAt() - System.currentTimeMillis();
+            if (ttl <= 0) {
+                connection.command("DEL", keyPrefix + uuid);
+            } else {
+                connection.command("SET", keyPrefix + uuid, record.encode(), "PX", Long.toString(ttl));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(UUID uuid) {
+        return submit(connection -> {
+            connection.command("DEL", keyPrefix + uuid);
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Redis 任务未能在 5 秒内完成");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        RespConnection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.closeQuietly();
+        }
+    }
+
+    private <T> CompletableFuture<T> submit(RedisTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(execute(task));
+                } catch (IOException | RuntimeException e) {
+                    // 无论哪种失败都要结束 future，否则等待会话恢复的登录会一直挂起
+                    logger.warn("Redis 操作失败: " + e.getMessage());
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> T execute(RedisTask<T> task) throws IOException {
+        RespConnection connection = borrow();
+        boolean broken = true;
+        try {
+            T result = task.run(connection);
+            broken = false;
+            return result;
+        } finally {
+            // 出错的连接可能还有未读完的响应，直接丢弃
+            if (broken || !idle.offer(connection)) {
+                created.decrementAndGet();
+                connection.closeQuietly();
+            }
+        }
+    }
+
+    private RespConnection borrow() throws IOException {
+        RespConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+        if (created.incrementAndGet() <= maxConnections) {
+            try {
+                return connect();
+            } catch (IOException e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+        created.decrementAndGet();
+        try {
+            connection = idle.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待 Redis 连接时被中断", e);
+        }
+        if (connection == null) {
+            throw new IOException("等待 Redis 连接超时");
+        }
+        return connection;
+    }
+
+    private RespConnection connect() throws IOException {
+        RespConnection connection = new RespConnection(host, port, timeoutMillis);
+        try {
+            if (password != null && !password.isEmpty()) {
+                connection.command("AUTH", password);
+            }
+            if (database != 0) {
+                connection.command("SELECT", Integer.toString(database));
+            }
+            return connection;
+        } catch (IOException e) {
+            connection.closeQuietly();
+            throw e;
+        }
+    }
+
+    private interface RedisTask<T> {
+        T run(RespConnection connection) throws IOException;
+    }
+
+    /**
+     * 单个 RESP 连接，同一时间只由一个线程使用。
+     */
+    static final class RespConnection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+
+        RespConnection(String host, int port, int timeoutMillis) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                this.in = new BufferedInputStream(socket.getInputStream());
+                this.out = new BufferedOutputStream(socket.getOutputStream());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        /**
+         * 发送一条命令并读取响应：简单字符串和批量字符串返回 String，整数返回 Long，
+         * 空值返回 null，数组返回 List；服务器返回错误时抛出 IOException。
+         */
+        Object command(String... args) throws IOException {
+            writeLine("*" + args.length);
+            for (String arg : args) {
+                byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+                writeLine("$" + bytes.length);
+                out.write(bytes);
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+            return read();
+        }
+
+        private Object read() throws IOException {
+            int type = in.read();
+            String line = readLine();
+            switch (type) {
+                case '+':
+                    return line;
+                case '-':
+                    throw new IOException("Redis 返回错误: " + line);
+                case ':':
+                    return parseNumber(line);
+                case '$': {
+                    int length = parseLength(line);
+                    if (length < 0) {
+                        return null;
+                    }
+                    byte[] bytes = new byte[length];
+                    int offset = 0;
+                    while (offset < length) {
+                        int read = in.read(bytes, offset, length - offset);
+                        if (read < 0) {
+                            throw new EOFException("Redis 连接已关闭");
+                        }
+                        offset += read;
+                    }
+                    readLine();
+                    return new String(bytes, StandardCharsets.UTF_8);
+                }
+                case '*': {
+                    int count = parseLength(line);
+                    if (count < 0) {
+                        return null;
+                    }
+                    List<Object> items = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        items.add(read());
+                    }
+                    return items;
+                }
+                case -1:
+                    throw new EOFException("Redis 连接已关闭");
+                default:
+                    throw new IOException("无法识别的 Redis 响应类型: " + (char) type);
+            }
+        }
+
+        // 格式错误的长度或整数说明连接上的数据已经错位，按连接出错处理
+        private long parseNumber(String line) throws IOException {
+            try {
+                return Long.parseLong(line);
+            } catch (NumberFormatException e) {
+                throw new IOException("Redis 响应格式不正确: " + line, e);
+            }
+        }
+
+        private int parseLength(String line) throws IOException {
+            long length = parseNumber(line);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Redis 响应长度超出范围: " + line);
+            }
+            return (int) Math.max(-1, length);
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(32);
+            int b;
+            while ((b = in.read()) != '\r') {
+                if (b < 0) {
+                    throw new EOFException("Redis 连接已关闭");
+                }
+                line.write(b);
+            }
+            if (in.read() != '\n') {
+                throw new IOException("Redis 响应格式不正确");
+            }
+            return new String(line.toByteArray(), StandardCharsets.UTF_8);
+        }
+
+        private void writeLine(String line) throws IOException {
+            out.write(line.getBytes(StandardCharsets.US_ASCII));
+            out.write('\r');
+            out.write('\n');
+        }
+
+        void closeQuietly() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
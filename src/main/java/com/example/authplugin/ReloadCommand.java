@@ -2,7 +2,6 @@ package com.example.authplugin;
 
 import com.velocitypowered.api.command.SimpleCommand;
 import com.velocitypowered.api.proxy.Player;
-import net.kyori.adventure.text.Component;
 
 public class ReloadCommand implements SimpleCommand {
     private final AuthPlugin plugin;
@@ -17,13 +16,16 @@ public class ReloadCommand implements SimpleCommand {
         if (invocation.source() instanceof Player) {
             Player player = (Player) invocation.source();
             if (!player.hasPermission("authplugin.reload")) {
-                player.sendMessage(Component.text("§c你没有权限使用此命令！"));
+                plugin.getAuthManager().getMessages().send(player, Message.NO_PERMISSION);
                 return;
             }
         }
 
-        // 重载配置
-        plugin.getAuthManager().reloadConfig();
-        invocation.source().sendMessage(Component.text("§a配置重载成功！"));
+        // 重载配置，配置文件保存后也会自动重载
+        if (plugin.getAuthManager().reloadConfig()) {
+            plugin.getAuthManager().getMessages().send(invocation.source(), Message.RELOAD_SUCCESS);
+        } else {
+            plugin.getAuthManager().getMessages().send(invocation.source(), Message.RELOAD_FAILED);
+        }
     }
 } 
\ No newline at end of file
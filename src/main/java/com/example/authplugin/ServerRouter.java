@@ -0,0 +1,143 @@
+package com.example.authplugin;
+
+import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录服（lobby）和登录后目标服（destination）的路由表。服务器名来自配置，
+ * 解析出的 RegisteredServer 缓存在数组里，热路径上不再按名称查找或创建 Optional。
+ * Velocity 3.1 没有服务器注册/注销事件，所以定期重新解析一次。
+ */
+public class ServerRouter {
+    private final ProxyServer server;
+    private final Logger logger;
+    private final ScheduledExecutorService scheduler;
+    private ScheduledFuture<?> refreshTask;
+    private volatile List<String> lobbyNames = Collections.emptyList();
+    private volatile List<String> destinationNames = Collections.emptyList();
+    private volatile RegisteredServer[] lobbies = new RegisteredServer[0];
+    private volatile RegisteredServer[] destinations = new RegisteredServer[0];
+
+    public ServerRouter(ProxyServer server, Logger logger) {
+        this.server = server;
+        this.logger = logger;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "auth-plugin-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void configure(List<String> lobbyNames, List<String> destinationNames, long refreshSeconds) {
+        this.lobbyNames = new ArrayList<>(lobbyNames);
+        this.destinationNames = new ArrayList<>(destinationNames);
+        refresh();
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        long interval = Math.max(1, refreshSeconds);
+        refreshTask = scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public void refresh() {
+        try {
+            lobbies = resolve(lobbyNames, lobbies);
+            destinations = resolve(destinationNames, destinations);
+        } catch (Exception e) {
+            logger.error("无法刷新服务器路由表", e);
+        }
+    }
+
+    /**
+     * 在线人数最少的登录服，没有可用的登录服时返回 null。
+     */
+    public RegisteredServer pickLobby() {
+        return leastLoaded(lobbies);
+    }
+
+    /**
+     * 在线人数最少的目标服，没有可用的目标服时返回 null。
+     */
+    public RegisteredServer pickDestination() {
+        return leastLoaded(destinations);
+    }
+
+    // 当前可用的目标服，调用方不能修改返回的数组
+    public RegisteredServer[] getDestinations() {
+        return destinations;
+    }
+
+    public boolean isLobby(RegisteredServer target) {
+        for (RegisteredServer lobby : lobbies) {
+            if (lobby == target) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private RegisteredServer[] resolve(List<String> names, RegisteredServer[] previous) {
+        List<RegisteredServer> resolved = new ArrayList<>(names.size());
+        for (String name : names) {
+            Optional<RegisteredServer> registered = server.getServer(name);
+            if (registered.isPresent()) {
+                resolved.add(registered.get());
+            }
+        }
+        RegisteredServer[] next = resolved.toArray(new RegisteredServer[0]);
+        if (!sameServers(previous, next)) {
+            List<String> available = new ArrayList<>(next.length);
+            for (RegisteredServer registered : next) {
+                available.add(registered.getServerInfo().getName());
+            }
+            logger.info("服务器路由已更新: " + names + " -> " + available);
+            return next;
+        }
+        return previous;
+    }
+
+    private static boolean sameServers(RegisteredServer[] a, RegisteredServer[] b) {
+        if (a.length != b.length) {
+            return false;
+        }
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static RegisteredServer leastLoaded(RegisteredServer[] pool) {
+        if (pool.length == 0) {
+            return null;
+        }
+        if (pool.length == 1) {
+            return pool[0];
+        }
+        RegisteredServer best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (RegisteredServer candidate : pool) {
+            int load = candidate.getPlayersConnected().size();
+            if (load < bestLoad) {
+                best = candidate;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+}
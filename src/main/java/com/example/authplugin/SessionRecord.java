@@ -0,0 +1,52 @@
+package com.example.authplugin;
+
+/**
+ * 一条已登录会话：用户名、登录时的 IP 和过期时间。
+ * 序列化为 "过期时间|IP|用户名"，用户名放在最后，其中不会出现分隔符问题。
+ */
+public final class SessionRecord {
+    private final String username;
+    private final String address;
+    private final long expiresAt;
+
+    public SessionRecord(String username, String address, long expiresAt) {
+        this.username = username;
+        this.address = address;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getAddress() {
+        return address;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+
+    public String encode() {
+        return expiresAt + "|" + address + "|" + username;
+    }
+
+    // 格式不正确时返回 null
+    public static SessionRecord decode(String value) {
+        int first = value.indexOf('|');
+        int second = first < 0 ? -1 : value.indexOf('|', first + 1);
+        if (second < 0) {
+            return null;
+        }
+        try {
+            long expiresAt = Long.parseLong(value.substring(0, first));
+            return new SessionRecord(value.substring(second + 1), value.substring(first + 1, second), expiresAt);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.authplugin;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 已登录会话的存储。玩家在有效期内重连（包括换到另一个代理节点）时可以跳过密码验证。
+ * 过期的会话由实现自行清理，lookup 不会返回过期的记录。
+ */
+public interface SessionStore {
+    CompletableFuture<Optional<SessionRecord>> lookup(UUID uuid);
+
+    CompletableFuture<Void> save(UUID uuid, SessionRecord record);
+
+    CompletableFuture<Void> delete(UUID uuid);
+
+    /**
+     * 定期调用，清理本地保存的过期记录。远程存储由服务端按 TTL 过期，不需要实现。
+     */
+    default void purgeExpired(long now) {
+    }
+
+    void close();
+}
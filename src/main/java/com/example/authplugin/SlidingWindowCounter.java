@@ -0,0 +1,189 @@
+package com.example.authplugin;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 定长的滑动窗口计数表。键是 64 位哈希，数据放在分段加锁的开放寻址基本类型数组中，
+ * 每个条目只占 24 字节。表满时覆盖探测范围内最久未更新的条目，内存占用不会超过初始容量。
+ * 计数按「上一窗口 × 剩余比例 + 当前窗口」近似滑动窗口。
+ */
+public final class SlidingWindowCounter {
+    private static final int SEGMENTS = 16;
+    private static final int MAX_PROBE = 8;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final long windowMillis;
+    private final int capacity;
+
+    public SlidingWindowCounter(int capacity, long windowMillis) {
+        int perSegment = Integer.highestOneBit(Math.max(MAX_PROBE, capacity / SEGMENTS - 1) << 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.capacity = perSegment * SEGMENTS;
+        this.windowMillis = Math.max(1, windowMillis);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * 估算值低于 limit 时计数加一并返回 true，否则不计数并返回 false。
+     */
+    public boolean tryAcquire(long key, long now, int limit) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slotFor(key, now / windowMillis, true);
+            if (estimate(segment, slot, now) >= limit) {
+                return false;
+            }
+            segment.current[slot]++;
+            return true;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // 退还一次计数
+    public void release(long key, long now) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slotFor(key, now / windowMillis, false);
+            if (slot >= 0 && segment.current[slot] > 0) {
+                segment.current[slot]--;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    public void reset(long key, long now) {
+        Segment segment = segmentFor(key);
+        segment.lock.lock();
+        try {
+            int slot = segment.slotFor(key, now / windowMillis, false);
+            if (slot >= 0) {
+                segment.current[slot] = 0;
+                segment.previous[slot] = 0;
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    // 仍在有效窗口内的条目数
+    public int size(long now) {
+        long window = now / windowMillis;
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                for (int i = 0; i < segment.keys.length; i++) {
+                    if (segment.keys[i] != 0 && segment.windows[i] >= window - 1) {
+                        size++;
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 清空上一窗口之前的条目，返回清理的数量。查找时会探测全部 MAX_PROBE 个槽位，清空槽位不影响其他键。
+     */
+    public int purgeExpired(long now) {
+        long window = now / windowMillis;
+        int purged = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                for (int i = 0; i < segment.keys.length; i++) {
+                    if (segment.keys[i] != 0 && segment.windows[i] < window - 1) {
+                        segment.keys[i] = 0;
+                        segment.current[i] = 0;
+                        segment.previous[i] = 0;
+                        purged++;
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return purged;
+    }
+
+    private long estimate(Segment segment, int slot, long now) {
+        long elapsed = now % windowMillis;
+        return segment.current[slot] + segment.previous[slot] * (windowMillis - elapsed) / windowMillis;
+    }
+
+    private Segment segmentFor(long key) {
+        return segments[(int) (key >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] keys;
+        private final long[] windows;
+        private final int[] current;
+        private final int[] previous;
+        private final int mask;
+
+        private Segment(int size) {
+            this.keys = new long[size];
+            this.windows = new long[size];
+            this.current = new int[size];
+            this.previous = new int[size];
+            this.mask = size - 1;
+        }
+
+        /**
+         * 找到 key 所在的槽位并滚动到当前窗口。不存在时 create 为 true 则占用空槽、
+         * 已过期的槽或探测范围内最旧的槽，否则返回 -1。
+         */
+        private int slotFor(long key, long window, boolean create) {
+            int start = (int) key & mask;
+            int candidate = -1;
+            long candidateWindow = Long.MAX_VALUE;
+            for (int probe = 0; probe < MAX_PROBE; probe++) {
+                int slot = (start + probe) & mask;
+                if (keys[slot] == key) {
+                    roll(slot, window);
+                    return slot;
+                }
+                long slotWindow = keys[slot] == 0 ? Long.MIN_VALUE : windows[slot];
+                if (slotWindow < candidateWindow) {
+                    candidate = slot;
+                    candidateWindow = slotWindow;
+                }
+            }
+            if (!create) {
+                return -1;
+            }
+            keys[candidate] = key;
+            windows[candidate] = window;
+            current[candidate] = 0;
+            previous[candidate] = 0;
+            return candidate;
+        }
+
+        private void roll(int slot, long window) {
+            long slotWindow = windows[slot];
+            if (slotWindow == window) {
+                return;
+            }
+            previous[slot] = slotWindow == window - 1 ? current[slot] : 0;
+            current[slot] = 0;
+            windows[slot] = window;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.authplugin;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定上限的 JDBC 连接池。每个连接自带一个 LRU 预编译语句缓存，
+ * 同一条 SQL 在同一连接上只会 prepare 一次。
+ */
+public class SqlConnectionPool {
+    private final ConnectionFactory factory;
+    private final int maxSize;
+    private final int statementCacheSize;
+    private final long borrowTimeoutMillis;
+    private final BlockingQueue<PooledConnection> idle;
+    private final AtomicInteger created = new AtomicInteger();
+    private volatile boolean closed;
+
+    public SqlConnectionPool(ConnectionFactory factory, int maxSize, int statementCacheSize, long borrowTimeoutMillis) {
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.statementCacheSize = Math.max(1, statementCacheSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        PooledConnection connection = idle.poll();
+        if (connection != null) {
+            return connection;
+        }
+
+        // 未达到上限时新建连接，否则等待其他线程归还
+        if (created.incrementAndGet() <= maxSize) {
+            try {
+                return new PooledConnection(factory.create());
+            } catch (SQLException e) {
+                created.decrementAndGet();
+                throw e;
+            }
+        }
+        created.decrementAndGet();
+
+        try {
+            connection = idle.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        if (connection == null) {
+            throw new SQLException("等待数据库连接超时");
+        }
+        return connection;
+    }
+
+    public void release(PooledConnection connection, boolean broken) {
+        if (broken || closed || !idle.offer(connection)) {
+            created.decrementAndGet();
+            connection.closeQuietly();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        PooledConnection connection;
+        while ((connection = idle.poll()) != null) {
+            created.decrementAndGet();
+            connection.closeQuietly();
+        }
+    }
+
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    public final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() > statementCacheSize) {
+                        closeStatement(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+            }
+            return statement;
+        }
+
+        private void closeQuietly() {
+            for (PreparedStatement statement : statements.values()) {
+                closeStatement(statement);
+            }
+            statements.clear();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+
+        private void closeStatement(PreparedStatement statement) {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+}